@@ -0,0 +1,112 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.repository.support.MemberColumnarEngine;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 벤치마크용 스프링 컨텍스트 - 임베디드 H2(in-memory)에 members 명(teams 개 팀에 고르게)을 넣고 시작한다.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkContext {
+
+    @Param({"10000"})
+    public int members;
+
+    @Param({"10"})
+    public int teams;
+
+    @Param({"30s"}) // 0s 면 카운트 캐시를 끈것과 같음
+    public String countCacheTtl;
+
+    @Param({"0s"}) // 기본은 결과 캐시를 꺼서 쿼리 비용을 잰다. -p resultCacheTtl=5s 로 캐시 적중시 비용 비교
+    public String resultCacheTtl;
+
+    @Param({"false"}) // -p parallelCount=false,true 로 페이징 카운트 동시 실행 비교
+    public boolean parallelCount;
+
+    @Param({"true"}) // -p queryTemplates=false,true 로 Querydsl 직렬화(searchByWhere 등)와 조건 조합별 JPQL 템플릿 비교
+    public boolean queryTemplates;
+
+    @Param({"false"}) // -p columnar=false,true 로 메모리 컬럼형 스냅샷 검색과 DB 검색 비교
+    public boolean columnar;
+
+    @Param({"100"}) // -p idBlockSize=1,100 로 persist 마다 시퀀스 호출(기존 방식)과 pooled-lo 비교 (InsertBenchmark)
+    public int idBlockSize;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() throws InterruptedException {
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=jmh",
+                        "--spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1",
+                        "--member.search.count-cache.ttl=" + countCacheTtl,
+                        "--member.search.result-cache.ttl=" + resultCacheTtl,
+                        "--member.search.parallel-count.enabled=" + parallelCount,
+                        "--member.columnar.enabled=" + columnar,
+                        "--member.search.query-templates.enabled=" + queryTemplates,
+                        "--spring.jpa.properties.querydsl.id.block-size.member=" + idBlockSize,
+                        "--spring.jpa.properties.querydsl.id.block-size.team=" + idBlockSize,
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                        "--decorator.datasource.p6spy.enable-logging=false",
+                        "--logging.level.root=warn",
+                        "--logging.level.org.hibernate.SQL=warn");
+        seed();
+        if (columnar) { //시드 데이터로 스냅샷을 다시 만들고 다 읽을때까지 기다린다 (그 전에는 DB 로 조회됨)
+            MemberColumnarEngine engine = getBean(MemberColumnarEngine.class);
+            engine.rebuild();
+            while (!engine.isReady()) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private void seed() {
+        EntityManager em = getBean(EntityManager.class);
+        new TransactionTemplate(getBean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            Team[] teamArray = new Team[teams];
+            for (int i = 0; i < teams; i++) {
+                teamArray[i] = new Team("team" + i);
+                em.persist(teamArray[i]);
+            }
+            for (int i = 0; i < members; i++) {
+                Member member = new Member("member" + i, i % 100);
+                member.setTeam(teamArray[i % teams]);
+                em.persist(member);
+                if (i % 1000 == 999) {
+                    em.flush();
+                    em.clear();
+                    for (int t = 0; t < teams; t++) {
+                        teamArray[t] = em.getReference(Team.class, teamArray[t].getId());
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원 insert 처리량 - id 를 받아오는 방식 비교 (-p idBlockSize=1,100)
+ * idBlockSize=1 이면 persist 마다 시퀀스를 호출(기존 @GeneratedValue 와 같음), 100 이면 100 건에 한번 (pooled-lo)
+ * jdbc batch_size(100) 단위로 flush/clear 하는건 MemberImportRepository 와 같음
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class InsertBenchmark {
+
+    @Param({"1000"})
+    public int rows;
+
+    private EntityManager em;
+    private TransactionTemplate transactionTemplate;
+    private Long teamId;
+
+    @Setup
+    public void setUp(BenchmarkContext context) {
+        em = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        teamId = transactionTemplate.execute(status -> em
+                .createQuery("select t.id from Team t order by t.id", Long.class)
+                .setMaxResults(1)
+                .getSingleResult());
+    }
+
+    @Benchmark
+    public int insertMembers() {
+        return transactionTemplate.execute(status -> {
+            Team team = em.getReference(Team.class, teamId);
+            for (int i = 0; i < rows; i++) {
+                Member member = new Member("insert" + i, i % 100);
+                member.setTeam(team); //changeTeam 은 team.Members 를 초기화하므로 쓰지 않음
+                em.persist(member);
+                if (i % 100 == 99) {
+                    em.flush();
+                    em.clear();
+                    team = em.getReference(Team.class, teamId);
+                }
+            }
+            return rows;
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTestRepositroy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 페이징 방식 비교 - fetchResults(searchPageSimple) / 카운트 분리(searchPageComplex)
+ * QueryDsl4RepositorySupport 의 applyPagination / applyPagination2
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PagingBenchmark {
+
+    @Param({"0", "100"})
+    public int page;
+
+    private MemberRepository memberRepository;
+    private MemberTestRepositroy memberTestRepositroy;
+    private MemberSearchCondition condition;
+    private PageRequest pageRequest;
+
+    @Setup
+    public void setUp(BenchmarkContext context) {
+        memberRepository = context.getBean(MemberRepository.class);
+        memberTestRepositroy = context.getBean(MemberTestRepositroy.class);
+        condition = new MemberSearchCondition();
+        pageRequest = PageRequest.of(page, 20);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple() {
+        return memberRepository.searchPageSimple(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<Member> applyPagination() {
+        return memberTestRepositroy.applyPagination(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<Member> applyPagination2() {
+        return memberTestRepositroy.applyPagination2(condition, pageRequest);
+    }
+}
@@ -0,0 +1,61 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동적쿼리 방식 비교 - BooleanBuilder / where 파라미터 / 사용자정의 리포지토리 (모두 Querydsl)
+ * 미리 만든 JPQL 템플릿(searchByTemplate)과도 비교한다.
+ * member.search.query-templates.enabled=true(기본)면 앞의 셋도 템플릿으로 가므로 Querydsl 비용은 -p queryTemplates=false 로 잰다.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+
+    private MemberJpaRepository memberJpaRepository;
+    private MemberRepository memberRepository;
+    private MemberSearchCondition condition;
+
+    @Setup
+    public void setUp(BenchmarkContext context) {
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepository = context.getBean(MemberRepository.class);
+        condition = new MemberSearchCondition(null, "team1", 20, 30);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder() {
+        return memberJpaRepository.searchByBuilder(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByWhere() {
+        return memberJpaRepository.searchByWhere(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> repositorySearch() {
+        return memberRepository.search(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByTemplate() {
+        return memberJpaRepository.searchByTemplate(condition);
+    }
+}
@@ -0,0 +1,54 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.support.RequiredFields;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 생성 API(saveByQueryDsl) 필수값 검사 - 기존 리플렉션 ChkParam 과 RequiredFields 비교 (스프링 컨텍스트 없음)
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidationBenchmark {
+
+    private final MemberTeamDto dto = new MemberTeamDto(null, "member1", 10, null, "teamA");
+    private final String[] names = {"username", "age", "teamName"};
+    private final RequiredFields required = RequiredFields.of(MemberTeamDto.class, names);
+
+    @Benchmark
+    public boolean chkParamByReflection() throws IllegalAccessException {
+        for (Field field : dto.getClass().getDeclaredFields()) {
+            field.setAccessible(true);
+            for (String str : names) {
+                if (field.getName().equals(str)) {
+                    if (field.get(dto) == null || field.get(dto).toString().trim().equals("")) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    @Benchmark
+    public boolean requiredFieldsByName() {
+        return RequiredFields.check(dto, names);
+    }
+
+    @Benchmark
+    public boolean requiredFieldsPrecompiled() {
+        return required.check(dto);
+    }
+}
@@ -3,10 +3,23 @@ package study.querydsl.Entitiy;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import study.querydsl.repository.support.PooledSequenceGenerator;
+import study.querydsl.repository.support.SearchCacheEvictListener;
 
 import javax.persistence.*;
+import java.util.Locale;
 
 @Entity
+@Table(indexes = { //검색조건(MemberSearchCondition)용 인덱스 - MemberSearchIndexTest 가 EXPLAIN 으로 검사함
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_username_lower", columnList = "username_lower"),
+        @Index(name = "idx_member_team_age", columnList = "team_id, age"),
+        @Index(name = "idx_member_age", columnList = "age")
+})
+@EntityListeners(SearchCacheEvictListener.class)
 
 @Getter
 @Setter
@@ -15,10 +28,19 @@ import javax.persistence.*;
 public class Member {
 
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq") //테이블별 시퀀스, id 를 블록 단위로 받아옴 (PooledSequenceGenerator)
+    @GenericGenerator(name = "member_seq", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "member_seq"))
     @Column(name = "MEMBER_ID")
     private Long id;
     private String username;
+
+    //대소문자 무시 검색용 - lower(username) 은 인덱스를 못타므로 소문자로 바꾼 값을 따로 저장해서 인덱스를 건다. (username 을 바꾸면 같이 바뀜)
+    //벌크 update 는 여기를 거치지 않으므로 MemberTestRepositroy.setUsername 으로 같이 set 한다.
+    @Column(name = "username_lower")
+    @Setter(AccessLevel.NONE)
+    private String usernameLower;
     private int age;
 
     @ManyToOne(fetch = FetchType.LAZY) //manyto One
@@ -28,7 +50,7 @@ public class Member {
 
     public Member(String username, int age, Team team) {
 
-        this.username = username;
+        setUsername(username);
         this.age = age;
         if(team !=null){
             changeTeam(team);
@@ -36,6 +58,21 @@ public class Member {
 
     }
 
+    public void setUsername(String username) {
+        this.username = username;
+        this.usernameLower = lower(username);
+    }
+
+    public static String lower(String username) {
+        return username == null ? null : username.toLowerCase(Locale.ROOT);
+    }
+
+    @PrePersist
+    @PreUpdate
+    private void syncUsernameLower() {
+        this.usernameLower = lower(username);
+    }
+
     private void changeTeam(Team team) {
         this.team =team;
         team.getMembers().add(this);
@@ -2,21 +2,38 @@ package study.querydsl.Entitiy;
 
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import study.querydsl.repository.support.PooledSequenceGenerator;
+import study.querydsl.repository.support.SearchCacheEvictListener;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(SearchCacheEvictListener.class)
+@Cacheable //2차캐시는 l2cache 프로필에서만 켜짐 (application-l2cache.yml)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
 @Getter
 
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
 
 public class Team {
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq") //테이블별 시퀀스, id 를 블록 단위로 받아옴 (PooledSequenceGenerator)
+    @GenericGenerator(name = "team_seq", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "team_seq"))
     @Column(name = "TEAM_ID")
     private Long id;
+    @NaturalId // 팀 이름은 유일 (saveByQueryDsl, import 모두 이름으로 팀을 찾아서 재사용함) - 유니크 제약조건이 팀명 검색 인덱스 역할도 함
     private String name;
 
     @OneToMany(mappedBy = "team")
@@ -0,0 +1,58 @@
+package study.querydsl.Entitiy;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 팀별 회원 나이 집계 요약 테이블 (회원수, 합계, 최소, 최대 - 평균은 합계/회원수)
+ * 회원 추가/삭제/나이·팀 변경이 일어난 트랜잭션 안에서 커밋 직전에 같이 갱신된다. (TeamStatsEventListener)
+ */
+@Entity
+@Table(name = "team_stats")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamStats {
+
+    @Id
+    @Column(name = "TEAM_ID")
+    private Long teamId;
+    private long memberCount;
+    private long ageSum;
+    private Integer minAge;
+    private Integer maxAge;
+
+    public TeamStats(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public Double getAgeAvg() {
+        return memberCount == 0 ? null : (double) ageSum / memberCount;
+    }
+
+    //추가만 있을때는 최소/최대를 바로 갱신할수 있다. (빠진 회원이 최소/최대였는지는 알수없어서 그때는 다시 계산)
+    public void add(long count, long sum, Integer addedMin, Integer addedMax) {
+        this.memberCount += count;
+        this.ageSum += sum;
+        if (addedMin != null && (minAge == null || addedMin < minAge)) {
+            minAge = addedMin;
+        }
+        if (addedMax != null && (maxAge == null || addedMax > maxAge)) {
+            maxAge = addedMax;
+        }
+    }
+
+    public void reset(long memberCount, long ageSum, Integer minAge, Integer maxAge) {
+        this.memberCount = memberCount;
+        this.ageSum = ageSum;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+    }
+}
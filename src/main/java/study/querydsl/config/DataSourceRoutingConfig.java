@@ -0,0 +1,67 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * 읽기/쓰기 분리 (member.datasource.replica.url 이 있을때만, replica 프로필)
+ * spring.datasource 는 primary, member.datasource.replica 는 복제본 풀이 되고
+ * 빈으로는 둘을 고르는 dataSource 하나만 노출한다. (p6spy 가 SQL 을 한번씩만 세도록)
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "member.datasource.replica", name = "url")
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class DataSourceRoutingConfig implements DisposableBean {
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+
+    public DataSourceRoutingConfig(DataSourceProperties dataSourceProperties, ReplicaDataSourceProperties replicaProperties,
+                                   Environment environment) {
+        primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        replica = new HikariDataSource();
+        replica.setJdbcUrl(replicaProperties.getUrl());
+        replica.setUsername(replicaProperties.getUsername());
+        replica.setPassword(replicaProperties.getPassword());
+        if (replicaProperties.getDriverClassName() != null) {
+            replica.setDriverClassName(replicaProperties.getDriverClassName());
+        }
+        replica.setMaximumPoolSize(replicaProperties.getMaximumPoolSize());
+        replica.setReadOnly(true);
+        replica.setInitializationFailTimeout(-1); //복제본이 죽어있어도 시작은 한다 (primary 로 읽음)
+        replica.setPoolName("replica");
+    }
+
+    @Bean(initMethod = "init")
+    public ReplicaHealthChecker replicaHealthChecker(ReplicaDataSourceProperties replicaProperties) {
+        return new ReplicaHealthChecker(primary, replica, replicaProperties.getMaxLag());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaHealthChecker replicaHealthChecker) {
+        //커넥션을 첫 쿼리때 잡아야 readOnly 여부를 보고 고를수 있다
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, replicaHealthChecker));
+    }
+
+    @Override
+    public void destroy() {
+        replica.close();
+        primary.close();
+    }
+}
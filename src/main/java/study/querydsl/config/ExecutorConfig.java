@@ -0,0 +1,118 @@
+package study.querydsl.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DB 작업용 스레드풀 설정
+ * 스레드 하나가 커넥션 하나를 잡으므로 두 풀의 합은 커넥션풀(spring.datasource.hikari.maximum-pool-size)보다 작게 잡아야한다.
+ * (dbExecutor 스레드가 커넥션을 잡은채로 카운트 스레드를 기다릴수 있음)
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * 큐가 찼을때 동작
+     * ABORT - 거절(RejectedExecutionException) -> 비동기 API 는 503 으로 응답
+     * CALLER_RUNS - 요청한 스레드(톰캣 스레드)에서 직접 실행. 거절은 없지만 서블릿 스레드를 다시 잡게됨
+     */
+    public enum RejectionPolicy {
+        ABORT, CALLER_RUNS
+    }
+
+    /**
+     * 페이징 카운트 쿼리 병렬 실행용 (member.search.parallel-count.enabled)
+     * 큐가 차면 거절되고, 거절되면 호출한 스레드에서 순서대로 실행한다.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor countQueryExecutor(@Value("${member.search.parallel-count.pool-size:4}") int poolSize,
+                                                     @Value("${member.search.parallel-count.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("count-query-");
+        executor.setRejectedExecutionHandler(new CountingRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy()));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    /**
+     * 비동기 검색 API(/async/**) 용 - 톰캣 스레드 대신 이 풀에서 JDBC 호출을 기다린다.
+     * 느린 검색이 몰려도 톰캣 스레드는 비어있고, 과부하는 이 풀의 거절 건수로 보인다.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor dbExecutor(@Value("${member.async.db-executor.pool-size:6}") int poolSize,
+                                             @Value("${member.async.db-executor.queue-capacity:50}") int queueCapacity,
+                                             @Value("${member.async.db-executor.rejection-policy:ABORT}") RejectionPolicy rejectionPolicy) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("db-");
+        executor.setRejectedExecutionHandler(new CountingRejectedExecutionHandler(
+                rejectionPolicy == RejectionPolicy.CALLER_RUNS
+                        ? new ThreadPoolExecutor.CallerRunsPolicy()
+                        : new ThreadPoolExecutor.AbortPolicy()));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    /**
+     * 풀 상태(executor.active, executor.queued, executor.completed ...)와 거절 건수(executor.rejected)를 /actuator/metrics 로 노출
+     */
+    @Bean
+    public MeterBinder dbExecutorMetrics(@Qualifier("dbExecutor") ThreadPoolTaskExecutor dbExecutor,
+                                         @Qualifier("countQueryExecutor") ThreadPoolTaskExecutor countQueryExecutor) {
+        return registry -> {
+            bind(registry, "dbExecutor", dbExecutor);
+            bind(registry, "countQueryExecutor", countQueryExecutor);
+        };
+    }
+
+    private static void bind(MeterRegistry registry, String name, ThreadPoolTaskExecutor executor) {
+        ThreadPoolExecutor threadPoolExecutor = executor.getThreadPoolExecutor();
+        new ExecutorServiceMetrics(threadPoolExecutor, name, Tags.empty()).bindTo(registry);
+        if (threadPoolExecutor.getRejectedExecutionHandler() instanceof CountingRejectedExecutionHandler) {
+            CountingRejectedExecutionHandler handler = (CountingRejectedExecutionHandler) threadPoolExecutor.getRejectedExecutionHandler();
+            FunctionCounter.builder("executor.rejected", handler, CountingRejectedExecutionHandler::getRejectedCount)
+                    .tag("name", name)
+                    .description("The number of tasks rejected because the queue was full")
+                    .register(registry);
+        }
+    }
+
+    static class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+
+        private final RejectedExecutionHandler delegate;
+        private final AtomicLong rejected = new AtomicLong();
+
+        CountingRejectedExecutionHandler(RejectedExecutionHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            rejected.incrementAndGet();
+            delegate.rejectedExecution(r, executor);
+        }
+
+        double getRejectedCount() {
+            return rejected.get();
+        }
+    }
+}
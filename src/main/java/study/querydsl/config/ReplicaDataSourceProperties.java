@@ -0,0 +1,30 @@
+package study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 읽기 복제본 설정 (member.datasource.replica) - url 이 있을때만 {@link DataSourceRoutingConfig} 가 켜진다.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.datasource.replica")
+public class ReplicaDataSourceProperties {
+
+    private String url;
+    private String username;
+    private String password;
+    private String driverClassName;
+
+    /** 검색이 대부분이라 복제본 풀을 더 크게 잡을수 있다 */
+    private int maximumPoolSize = 20;
+
+    /** 이보다 뒤쳐지면 복제본을 안쓰고 primary 로 읽는다. 0 이면 지연은 안보고 살아있는지만 확인 */
+    private Duration maxLag = Duration.ZERO;
+
+    /** 복제본 상태 확인 주기 (ms) */
+    private long checkInterval = 5000;
+}
@@ -0,0 +1,98 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 복제본을 읽기에 써도 되는지 주기적으로 확인 ({@link ReplicaRoutingDataSource})
+ * - max-lag 가 0 이면 복제본에 select 1 이 되는지만 본다.
+ * - max-lag 가 있으면 primary 의 replica_heartbeat 에 시각을 남기고(복제로 넘어감), 복제본이 마지막 기록을 얼마나 늦게 갖고있는지 본다.
+ *   지연은 확인 주기 단위로 보이므로 max-lag 는 check-interval 보다 크게 잡는다.
+ * 확인에 실패하면 다음 확인때까지 읽기도 primary 로 간다.
+ */
+@Slf4j
+public class ReplicaHealthChecker {
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final Duration maxLag;
+
+    private volatile boolean available;
+    private volatile long lagMillis = -1; //모르면 -1
+
+    public ReplicaHealthChecker(DataSource primary, DataSource replica, Duration maxLag) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.maxLag = maxLag == null ? Duration.ZERO : maxLag;
+    }
+
+    public void init() {
+        if (lagChecked()) {
+            try {
+                primary.execute("create table if not exists replica_heartbeat (id int primary key, beat_at bigint not null)");
+                beat();
+            } catch (DataAccessException e) {
+                log.warn("replica heartbeat could not be written on primary", e);
+            }
+        }
+        check();
+    }
+
+    @Scheduled(fixedDelayString = "${member.datasource.replica.check-interval:5000}")
+    public void check() {
+        boolean ok;
+        try {
+            if (lagChecked()) {
+                Long primaryBeat = lastBeat(primary);
+                Long replicaBeat = lastBeat(replica);
+                lagMillis = primaryBeat == null || replicaBeat == null ? -1 : Math.max(0, primaryBeat - replicaBeat);
+                ok = lagMillis >= 0 && lagMillis <= maxLag.toMillis();
+                beat();
+            } else {
+                replica.queryForObject("select 1", Integer.class);
+                ok = true;
+            }
+        } catch (DataAccessException e) {
+            lagMillis = -1;
+            ok = false;
+            log.debug("replica check failed", e);
+        }
+
+        if (ok != available) {
+            if (ok) {
+                log.info("replica is available, read-only transactions go to the replica (lag {}ms)", lagMillis);
+            } else {
+                log.warn("replica is down or lagging (lag {}ms, max {}ms), read-only transactions go to the primary",
+                        lagMillis, maxLag.toMillis());
+            }
+        }
+        available = ok;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    private boolean lagChecked() {
+        return !maxLag.isZero() && !maxLag.isNegative();
+    }
+
+    private void beat() {
+        primary.update("merge into replica_heartbeat key (id) values (1, ?)", System.currentTimeMillis());
+    }
+
+    private static Long lastBeat(JdbcTemplate jdbcTemplate) {
+        List<Long> beats = jdbcTemplate.queryForList("select beat_at from replica_heartbeat where id = 1", Long.class);
+        return beats.isEmpty() ? null : beats.get(0);
+    }
+}
@@ -0,0 +1,76 @@
+package study.querydsl.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 읽기전용 트랜잭션(@Transactional(readOnly = true))은 복제본, 나머지(쓰기, 트랜잭션 밖)는 primary 로 보낸다.
+ * 복제본이 죽었거나 max-lag 보다 뒤쳐져 있으면({@link ReplicaHealthChecker}) 읽기도 primary 로
+ *
+ * 트랜잭션 시작시점에는 readOnly 여부가 아직 안정해졌으므로 LazyConnectionDataSourceProxy 로 감싸서
+ * 첫 쿼리때 커넥션을 고르게 해야한다.
+ *
+ * 복제본 커넥션을 받은 트랜잭션에는 표시를 남겨서({@link #isReplicaRead()}) 검색 캐시가 복제본에서 읽은
+ * (primary 커밋이 아직 안넘어왔을수 있는) 결과를 캐시에 넣지 않게 한다.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private static final String REPLICA_READ = ReplicaRoutingDataSource.class.getName() + ".REPLICA_READ";
+
+    private final ReplicaHealthChecker healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaHealthChecker healthChecker) {
+        this.healthChecker = healthChecker;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Target.PRIMARY, primary);
+        targets.put(Target.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Target target = currentTarget();
+        if (target == Target.REPLICA) {
+            markReplicaRead();
+        }
+        return target;
+    }
+
+    public Target currentTarget() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && healthChecker.isAvailable()) {
+            return Target.REPLICA;
+        }
+        return Target.PRIMARY;
+    }
+
+    /**
+     * 지금 트랜잭션이 복제본 커넥션으로 읽었는지 (트랜잭션이 끝나면 지워짐)
+     */
+    public static boolean isReplicaRead() {
+        return TransactionSynchronizationManager.hasResource(REPLICA_READ);
+    }
+
+    private static void markReplicaRead() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || isReplicaRead()) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(REPLICA_READ, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(REPLICA_READ);
+            }
+        });
+    }
+}
@@ -0,0 +1,53 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.NaturalIdStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.dto.CacheRegionStatsDto;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 2차캐시 영역별 히트율 확인용 (l2cache 프로필 - generate_statistics 가 켜져 있어야 값이 쌓인다)
+ */
+@RestController
+@RequiredArgsConstructor
+public class CacheStatsController {
+
+    private final EntityManagerFactory emf;
+
+    @GetMapping("/v1/cache/stats")
+    public List<CacheRegionStatsDto> cacheStats() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        List<CacheRegionStatsDto> result = new ArrayList<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                result.add(new CacheRegionStatsDto(region,
+                        regionStatistics.getHitCount(),
+                        regionStatistics.getMissCount(),
+                        regionStatistics.getPutCount()));
+            }
+        }
+
+        NaturalIdStatistics teamNaturalId = statistics.getNaturalIdStatistics(Team.class.getName());
+        result.add(new CacheRegionStatsDto("naturalId:" + Team.class.getName(),
+                teamNaturalId.getCacheHitCount(),
+                teamNaturalId.getCacheMissCount(),
+                teamNaturalId.getCachePutCount()));
+
+        result.add(new CacheRegionStatsDto("queryCache",
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount()));
+        return result;
+    }
+}
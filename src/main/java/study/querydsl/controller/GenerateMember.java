@@ -0,0 +1,123 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.repository.TeamStatsRepository;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * generate 프로필 - InitMember(100건) 대신 대용량 데이터를 만든다. (member.generate.*)
+ * 엔티티를 거치지 않고 jdbc batch insert 로 청크(트랜잭션)마다 나눠서 여러 스레드로 넣는다.
+ * ex) --spring.profiles.active=local,generate --member.generate.members=10000000 --member.generate.team-skew=1.1
+ *
+ * - member 테이블이 비어있을때만 실행 (ddl-auto: create 로 새로 만든 직후)
+ * - ApplicationRunner 라서 ApplicationReadyEvent 전에 끝난다 -> 전문검색 인덱스, 컬럼형 스냅샷은 만든 데이터로 시작함
+ * - id 를 직접 넣으므로 끝나고 member_seq, team_seq 를 그 다음 값으로 옮기고 team_stats 를 다시 집계한다.
+ */
+@Slf4j
+@Profile("generate")
+@Component
+@RequiredArgsConstructor
+public class GenerateMember implements ApplicationRunner {
+
+    private static final String INSERT_TEAM = "insert into team (team_id, name) values (?, ?)";
+    private static final String INSERT_MEMBER =
+            "insert into member (member_id, username, username_lower, age, team_id) values (?, ?, ?, ?, ?)";
+
+    private final GenerateMemberProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final TeamStatsRepository teamStatsRepository;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Long existing = jdbcTemplate.queryForObject("select count(*) from member", Long.class);
+        if (existing != null && existing > 0) {
+            log.info("member table already has {} rows, skip generating", existing);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        MemberDataset dataset = new MemberDataset(properties);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> insertTeams());
+        insertMembers(dataset, transactionTemplate);
+
+        jdbcTemplate.execute("alter sequence member_seq restart with " + (properties.getMembers() + 1));
+        jdbcTemplate.execute("alter sequence team_seq restart with " + (properties.getTeams() + 1));
+        teamStatsRepository.rebuild();
+
+        long millis = System.currentTimeMillis() - start;
+        log.info("generated {} teams, {} members in {}ms ({} rows/s)", properties.getTeams(), properties.getMembers(),
+                millis, properties.getMembers() * 1000 / Math.max(millis, 1));
+    }
+
+    private void insertTeams() {
+        List<Object[]> teams = new ArrayList<>(properties.getTeams());
+        for (int ordinal = 0; ordinal < properties.getTeams(); ordinal++) {
+            teams.add(new Object[]{ordinal + 1L, MemberDataset.teamName(ordinal)});
+        }
+        jdbcTemplate.batchUpdate(INSERT_TEAM, teams);
+    }
+
+    private void insertMembers(MemberDataset dataset, TransactionTemplate transactionTemplate)
+            throws InterruptedException {
+        int chunks = dataset.chunks();
+        AtomicLong inserted = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getThreads());
+        try {
+            List<Future<?>> futures = new ArrayList<>(chunks);
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int current = chunk;
+                futures.add(executor.submit(() -> {
+                    int rows = transactionTemplate.execute(status -> insertChunk(dataset, current));
+                    long total = inserted.addAndGet(rows);
+                    if (current % 100 == 0) {
+                        log.info("generated {}/{} members", total, properties.getMembers());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("member generation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int insertChunk(MemberDataset dataset, int chunk) {
+        List<Object[]> rows = new ArrayList<>(properties.getChunkSize());
+        dataset.chunk(chunk, (id, username, usernameLower, age, teamId) ->
+                rows.add(new Object[]{id, username, usernameLower, age, teamId}));
+        jdbcTemplate.batchUpdate(INSERT_MEMBER, rows, properties.getBatchSize(), (ps, row) -> {
+            ps.setLong(1, (Long) row[0]);
+            ps.setString(2, (String) row[1]);
+            ps.setString(3, (String) row[2]);
+            ps.setInt(4, (Integer) row[3]);
+            if (row[4] == null) {
+                ps.setNull(5, Types.BIGINT);
+            } else {
+                ps.setLong(5, (Long) row[4]);
+            }
+        });
+        return rows.size();
+    }
+}
@@ -0,0 +1,52 @@
+package study.querydsl.controller;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 대용량 테스트 데이터 생성 설정 (member.generate, generate 프로필)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "member.generate")
+public class GenerateMemberProperties {
+
+    /** 같은 seed 면 스레드 수와 상관없이 같은 데이터 */
+    private long seed = 42;
+
+    private int teams = 100;
+    private long members = 1_000_000;
+
+    /** 팀 배정 zipf 지수 - 0 이면 고르게, 1 이상이면 앞쪽 몇개 팀이 대부분을 가짐 */
+    private double teamSkew = 0;
+
+    /** 팀이 없는 회원 비율 (0 ~ 1) */
+    private double noTeamRatio = 0;
+
+    private AgeDistribution ageDistribution = AgeDistribution.UNIFORM;
+    private int ageMin = 1;
+    private int ageMax = 99;
+    /** NORMAL 일때 평균/표준편차 (ageMin ~ ageMax 로 자름) */
+    private double ageMean = 35;
+    private double ageStddev = 12;
+
+    private String usernamePrefix = "member";
+    /** 회원명 종류 수 - 0 이면 회원마다 다른 이름(prefix + id), 아니면 이 중에서 골라서 중복됨 */
+    private int usernameCardinality = 0;
+    /** 회원명 zipf 지수 (usernameCardinality > 0 일때) */
+    private double usernameSkew = 0;
+
+    /** 동시에 insert 하는 스레드 수 (hikari 풀보다 작게) */
+    private int threads = 4;
+    /** 청크(트랜잭션 하나) 크기 */
+    private int chunkSize = 10_000;
+    /** jdbc batch 크기 */
+    private int batchSize = 1_000;
+
+    public enum AgeDistribution {
+        UNIFORM, NORMAL
+    }
+}
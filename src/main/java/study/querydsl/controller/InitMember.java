@@ -12,7 +12,7 @@ import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
-@Profile("local")
+@Profile("local & !generate") //generate 프로필이면 GenerateMember 가 대신 만든다
 @Component
 @RequiredArgsConstructor
 public class InitMember {
@@ -0,0 +1,86 @@
+package study.querydsl.controller;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * /v1~v3 검색의 비동기 버전 - JDBC 호출은 dbExecutor 스레드에서 기다리고 톰캣 스레드는 바로 반납한다.
+ * dbExecutor 큐가 꽉 차면 503 (Retry-After) 로 응답 -> 과부하가 톰캣 accept 큐 타임아웃 대신 거절로 보임
+ * 응답 대기 시간(spring.mvc.async.request-timeout)이 지나면 503 으로 응답하고, 아직 큐에서 기다리는 검색은 취소한다.
+ */
+@RestController
+public class MemberAsyncController {
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final MemberRepository memberRepository;
+    private final ThreadPoolTaskExecutor dbExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public MemberAsyncController(MemberJpaRepository memberJpaRepository, MemberRepository memberRepository,
+                                 @Qualifier("dbExecutor") ThreadPoolTaskExecutor dbExecutor,
+                                 PlatformTransactionManager transactionManager) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.memberRepository = memberRepository;
+        this.dbExecutor = dbExecutor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @GetMapping("/async/v1/members")
+    public DeferredResult<List<MemberTeamDto>> searchMemberV1(MemberSearchCondition condition) {
+        return async(() -> memberJpaRepository.searchByWhere(condition));
+    }
+
+    @GetMapping("/async/v2/members")
+    public DeferredResult<Object> searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+                                                    @RequestParam(defaultValue = "true") boolean withTotal) {
+        return async(() -> withTotal
+                ? memberRepository.searchPageSimple(condition, pageable)
+                : memberRepository.searchSlice(condition, pageable));
+    }
+
+    @GetMapping("/async/v3/members")
+    public DeferredResult<Object> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                                    @RequestParam(defaultValue = "true") boolean withTotal) {
+        return async(() -> withTotal
+                ? memberRepository.searchPageComplex(condition, pageable)
+                : memberRepository.searchSlice(condition, pageable));
+    }
+
+    //dbExecutor 스레드에는 OSIV 로 열린 EntityManager 가 없으므로 읽기전용 트랜잭션으로 감싸서 실행
+    //타임아웃이면 취소 -> 큐에서 기다리던 검색은 실행되지 않는다. 이미 실행중인 쿼리는 끝까지 (인터럽트하면 H2 가 파일/소켓을 닫을수 있음)
+    private <T> DeferredResult<T> async(Supplier<T> query) {
+        DeferredResult<T> result = new DeferredResult<>();
+        ListenableFuture<T> future = dbExecutor.submitListenable(() -> readOnlyTransaction.execute(status -> query.get()));
+        future.addCallback(result::setResult, result::setErrorResult);
+        result.onTimeout(() -> future.cancel(false));
+        return result;
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> rejected(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("검색 요청이 많습니다. 잠시후 다시 시도해주세요.");
+    }
+}
@@ -1,17 +1,37 @@
 package study.querydsl.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import study.querydsl.Entitiy.Member;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberImportResult;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.MemberTeamSliceDto;
+import study.querydsl.repository.MemberImportRepository;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.MemberFullTextIndex;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.transaction.Transactional;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -20,32 +40,119 @@ public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberImportRepository memberImportRepository;
+    private final ObjectMapper objectMapper;
+    private final MemberFullTextIndex memberFullTextIndex;
 
+    @Value("${member.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    @Value("${spring.data.web.pageable.max-page-size:2000}") //Pageable(v2, v3) 과 같은 최대 크기
+    private int maxPageSize;
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
         return memberJpaRepository.searchByWhere(condition);
     }
 
+    /**
+     * v1 검색결과를 NDJSON(한줄에 회원 하나)으로 바로 응답 스트림에 쓴다.
+     * DB 커서에서 읽는 즉시 내보내기 때문에 결과가 몇건이든 힙 사용량이 일정함.
+     */
+    @GetMapping(value = "/v1/members/export", produces = "application/x-ndjson")
+    public void exportMemberV1(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+
+        ObjectWriter writer = objectMapper.writerFor(MemberTeamDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            memberJpaRepository.streamByWhere(condition, exportFetchSize, memberTeamDto -> {
+                try {
+                    writer.writeValue(generator, memberTeamDto);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * 회원 대량 등록 - 파일 업로드(csv / ndjson) 혹은 요청 본문을 그대로 스트리밍으로 읽는다.
+     * 처리건수와 초당 처리량을 돌려줌
+     */
+    @PostMapping(value = "/v1/members/import", consumes = "multipart/form-data")
+    public MemberImportResult importMembers(@RequestParam("file") MultipartFile file) throws IOException {
+        boolean csv = "text/csv".equals(file.getContentType())
+                || (file.getOriginalFilename() != null && file.getOriginalFilename().endsWith(".csv"));
+        return importMembers(file.getInputStream(), csv ? MemberImportRepository.Format.CSV : MemberImportRepository.Format.NDJSON);
+    }
+
+    @PostMapping(value = "/v1/members/import", consumes = {"text/csv", "application/x-ndjson"})
+    public MemberImportResult importMembers(HttpServletRequest request) throws IOException {
+        boolean csv = request.getContentType().startsWith("text/csv");
+        return importMembers(request.getInputStream(), csv ? MemberImportRepository.Format.CSV : MemberImportRepository.Format.NDJSON);
+    }
+
+    private MemberImportResult importMembers(InputStream in, MemberImportRepository.Format format) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return memberImportRepository.importMembers(reader, format);
+        }
+    }
+
+    /**
+     * 전문검색(q) 인덱스를 테이블 내용으로 다시 만든다. (member.fulltext.enabled=false 면 404)
+     */
+    @PostMapping("/v1/members/fulltext/reindex")
+    public ResponseEntity<Void> reindexFullText() {
+        if (!memberFullTextIndex.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        memberFullTextIndex.reindex();
+        return ResponseEntity.noContent().build();
+    }
+
     @Transactional
     @GetMapping("/v1/createMember")
     @ResponseBody
-    public Object create(MemberTeamDto memberTeamDto) throws IllegalAccessException {
+    public Object create(MemberTeamDto memberTeamDto) {
 
         memberJpaRepository.saveByQueryDsl(memberTeamDto);
         return memberJpaRepository.saveByQueryDsl(memberTeamDto)!=null ? memberJpaRepository.saveByQueryDsl(memberTeamDto): "실패";
 
     }
 
+    //withTotal=false 면 카운트 쿼리 없이 Slice 로 응답 (무한스크롤용)
+    //반환타입을 Slice 로 선언하면 jackson 이 선언타입 기준으로 직렬화해서 Page 의 totalElements 가 빠지므로 Object 로 둔다.
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
+    public Object searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+                                 @RequestParam(defaultValue = "true") boolean withTotal) {
+        if (!withTotal) {
+            return memberRepository.searchSlice(condition,pageable);
+        }
         return memberRepository.searchPageSimple(condition,pageable);
     }
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
+    public Object searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                 @RequestParam(defaultValue = "true") boolean withTotal) {
+        if (!withTotal) {
+            return memberRepository.searchSlice(condition,pageable);
+        }
         return memberRepository.searchPageComplex(condition,pageable);
     }
 
+    @GetMapping("/v4/members")
+    public MemberTeamSliceDto searchMemberV4(MemberSearchCondition condition,
+                                             @RequestParam(required = false) Long lastMemberId,
+                                             @RequestParam(defaultValue = "20") int size) {
+        if (size < 1 || size > maxPageSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size 는 1 ~ " + maxPageSize + " 사이여야 합니다.");
+        }
+        return new MemberTeamSliceDto(memberRepository.searchSlice(condition, lastMemberId, size));
+    }
+
 
 
 }
@@ -0,0 +1,98 @@
+package study.querydsl.controller;
+
+import study.querydsl.Entitiy.Member;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * {@link GenerateMemberProperties} 대로 회원 행을 만든다. (DB 와 무관)
+ * 청크마다 seed 와 청크 번호로 난수를 새로 만들기 때문에 어느 스레드가 어떤 순서로 만들든 같은 행이 나온다.
+ * id 는 1 부터 members 까지, 팀 id 는 1 부터 teams 까지 (팀명 team0, team1 ...)
+ */
+public class MemberDataset {
+
+    private final GenerateMemberProperties properties;
+    private final double[] teamCdf;     //skew 가 0 이면 null (고르게)
+    private final double[] usernameCdf;
+
+    public MemberDataset(GenerateMemberProperties properties) {
+        this.properties = properties;
+        this.teamCdf = properties.getTeamSkew() > 0 ? zipfCdf(properties.getTeams(), properties.getTeamSkew()) : null;
+        this.usernameCdf = properties.getUsernameCardinality() > 0 && properties.getUsernameSkew() > 0
+                ? zipfCdf(properties.getUsernameCardinality(), properties.getUsernameSkew())
+                : null;
+    }
+
+    public int chunks() {
+        return (int) ((properties.getMembers() + properties.getChunkSize() - 1) / properties.getChunkSize());
+    }
+
+    public static String teamName(int ordinal) {
+        return "team" + ordinal;
+    }
+
+    public void chunk(int chunk, RowConsumer consumer) {
+        SplittableRandom random = new SplittableRandom(properties.getSeed() + chunk * 0x9E3779B97F4A7C15L);
+        long from = (long) chunk * properties.getChunkSize() + 1;
+        long to = Math.min(from + properties.getChunkSize() - 1, properties.getMembers());
+        for (long id = from; id <= to; id++) {
+            String username = username(id, random);
+            consumer.accept(id, username, Member.lower(username), age(random), teamId(random));
+        }
+    }
+
+    private String username(long id, SplittableRandom random) {
+        int cardinality = properties.getUsernameCardinality();
+        if (cardinality <= 0) {
+            return properties.getUsernamePrefix() + id;
+        }
+        int index = usernameCdf != null ? sample(usernameCdf, random.nextDouble()) : random.nextInt(cardinality);
+        return properties.getUsernamePrefix() + index;
+    }
+
+    private int age(SplittableRandom random) {
+        int min = properties.getAgeMin();
+        int max = properties.getAgeMax();
+        if (properties.getAgeDistribution() == GenerateMemberProperties.AgeDistribution.UNIFORM) {
+            return random.nextInt(min, max + 1);
+        }
+        //Box-Muller (SplittableRandom 에는 nextGaussian 이 없음)
+        double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        long age = Math.round(properties.getAgeMean() + properties.getAgeStddev() * gaussian);
+        return (int) Math.max(min, Math.min(max, age));
+    }
+
+    private Long teamId(SplittableRandom random) {
+        if (properties.getTeams() <= 0 || random.nextDouble() < properties.getNoTeamRatio()) {
+            return null;
+        }
+        int ordinal = teamCdf != null ? sample(teamCdf, random.nextDouble()) : random.nextInt(properties.getTeams());
+        return ordinal + 1L;
+    }
+
+    //k 번째 값의 가중치 1 / (k+1)^s 의 누적분포
+    static double[] zipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, s);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+        return cdf;
+    }
+
+    static int sample(double[] cdf, double u) {
+        int index = Arrays.binarySearch(cdf, u);
+        index = index >= 0 ? index : -index - 1;
+        return Math.min(index, cdf.length - 1);
+    }
+
+    @FunctionalInterface
+    public interface RowConsumer {
+        void accept(long id, String username, String usernameLower, int age, Long teamId);
+    }
+}
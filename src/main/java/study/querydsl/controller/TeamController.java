@@ -0,0 +1,41 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.TeamMembersDto;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.repository.TeamQueryRepository;
+import study.querydsl.repository.TeamStatsRepository;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamQueryRepository teamQueryRepository;
+    private final TeamStatsRepository teamStatsRepository;
+
+    //팀 페이징 + 페이지 팀들의 회원은 IN 쿼리 한번 (팀 수와 상관없이 쿼리 최대 3번)
+    @GetMapping("/v1/teams")
+    public Page<TeamMembersDto> searchTeamsV1(Pageable pageable) {
+        return teamQueryRepository.findTeamsWithMembers(pageable);
+    }
+
+    //팀별 회원수, 나이 합계/평균/최소/최대 - 요약 테이블(team_stats)에서 팀 수만큼만 읽는다.
+    @GetMapping("/v1/teams/stats")
+    public List<TeamStatsDto> teamStatsV1() {
+        return teamStatsRepository.findAll();
+    }
+
+    //요약 테이블을 회원 테이블에서 다시 집계
+    @PostMapping("/v1/teams/stats/rebuild")
+    public List<TeamStatsDto> rebuildTeamStats() {
+        teamStatsRepository.rebuild();
+        return teamStatsRepository.findAll();
+    }
+}
@@ -0,0 +1,24 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class CacheRegionStatsDto {
+
+    private String region;
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private double hitRatio;
+
+    public CacheRegionStatsDto(String region, long hitCount, long missCount, long putCount) {
+        this.region = region;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        long total = hitCount + missCount;
+        this.hitRatio = total == 0 ? 0 : (double) hitCount / total;
+    }
+}
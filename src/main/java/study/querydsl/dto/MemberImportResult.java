@@ -0,0 +1,34 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class MemberImportResult {
+
+    private long rows;          // 저장한 회원수
+    private long skipped;       // username 이 비어있어서 건너뛴 행
+    private long invalid;       // 형식이 잘못되어(JSON, 숫자) 건너뛴 행
+    private int teamsCreated;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+    private Long failedFromLine; // DB 오류로 롤백된 배치의 첫 줄 (성공하면 null)
+    private Long failedToLine;
+    private String error;
+
+    public MemberImportResult(long rows, long skipped, long invalid, int teamsCreated, long elapsedMillis) {
+        this.rows = rows;
+        this.skipped = skipped;
+        this.invalid = invalid;
+        this.teamsCreated = teamsCreated;
+        this.elapsedMillis = elapsedMillis;
+        this.rowsPerSecond = elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+    }
+
+    public void failed(long fromLine, long toLine, String error) {
+        this.failedFromLine = fromLine;
+        this.failedToLine = toLine;
+        this.error = error;
+    }
+}
@@ -3,6 +3,9 @@ package study.querydsl.dto;
 import com.querydsl.core.annotations.QueryProjection;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import study.querydsl.Entitiy.Member;
+
+import static org.springframework.util.StringUtils.hasText;
 
 @Data
 @NoArgsConstructor
@@ -14,6 +17,13 @@ public class MemberSearchCondition {
     private Integer ageGoe;
     private Integer ageLoe;
 
+    /** 회원명 앞부분 검색 (타입어헤드) - 인덱스 범위 검색으로 처리 */
+    private String usernamePrefix;
+    /** username, usernamePrefix 를 대소문자 구분없이 */
+    private boolean ignoreCase;
+    /** 전문검색 - 회원명, 팀명을 단어 단위로 검색 (member.fulltext.enabled) */
+    private String q;
+
 
     public MemberSearchCondition(String username, String teamName, Integer ageGoe, Integer ageLoe) {
         this.username = username;
@@ -22,5 +32,25 @@ public class MemberSearchCondition {
         this.ageLoe = ageLoe;
     }
 
+    /**
+     * 캐시 키용 - 검색조건에서 무시되는 값(null, "", 공백)을 null 로 맞춘 복사본
+     * 대소문자 무시 검색이면 회원명도 소문자로 맞춘다.
+     */
+    public MemberSearchCondition normalized() {
+        MemberSearchCondition normalized = new MemberSearchCondition(
+                hasText(username) ? username : null,
+                hasText(teamName) ? teamName : null,
+                ageGoe,
+                ageLoe);
+        normalized.usernamePrefix = hasText(usernamePrefix) ? usernamePrefix : null;
+        normalized.q = hasText(q) ? q.trim() : null;
+        if (ignoreCase && (normalized.username != null || normalized.usernamePrefix != null)) {
+            normalized.ignoreCase = true;
+            normalized.username = Member.lower(normalized.username);
+            normalized.usernamePrefix = Member.lower(normalized.usernamePrefix);
+        }
+        return normalized;
+    }
+
 
 }
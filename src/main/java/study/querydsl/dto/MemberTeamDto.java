@@ -26,6 +26,11 @@ public class MemberTeamDto {
         this.teamName = teamName;
     }
 
+    //캐시된 결과를 돌려줄때 - 받은 쪽이 고쳐도 캐시에는 영향이 없게
+    public MemberTeamDto copy() {
+        return new MemberTeamDto(memberId, username, age, teamId, teamName);
+    }
+
     public Team convertTeam() {
         return new Team(this.teamName);
     }
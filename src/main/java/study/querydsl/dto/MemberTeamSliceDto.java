@@ -0,0 +1,27 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * 키셋 페이징 응답 - 페이지 번호 대신 다음 요청에 넘겨줄 lastMemberId 를 내려준다.
+ */
+@Data
+@NoArgsConstructor
+public class MemberTeamSliceDto {
+
+    private List<MemberTeamDto> content;
+    private boolean hasNext;
+    private Long lastMemberId; // 다음 요청의 lastMemberId 로 그대로 넘기면 됨. 마지막이면 null
+
+    public MemberTeamSliceDto(Slice<MemberTeamDto> slice) {
+        this.content = slice.getContent();
+        this.hasNext = slice.hasNext();
+        if (slice.hasNext() && !content.isEmpty()) {
+            this.lastMemberId = content.get(content.size() - 1).getMemberId();
+        }
+    }
+}
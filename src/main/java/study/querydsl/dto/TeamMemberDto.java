@@ -0,0 +1,23 @@
+package study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class TeamMemberDto {
+
+    private Long memberId;
+    private String username;
+    private int age;
+    private Long teamId;
+
+    @QueryProjection
+    public TeamMemberDto(Long memberId, String username, int age, Long teamId) {
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+    }
+}
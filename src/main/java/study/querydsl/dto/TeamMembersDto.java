@@ -0,0 +1,24 @@
+package study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class TeamMembersDto {
+
+    private Long teamId;
+    private String teamName;
+    private List<TeamMemberDto> members = new ArrayList<>();
+    private boolean moreMembers; // members 에 다 담지 못한 회원이 더 있음
+
+    @QueryProjection
+    public TeamMembersDto(Long teamId, String teamName) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+    }
+}
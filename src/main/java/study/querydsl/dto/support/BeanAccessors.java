@@ -0,0 +1,188 @@
+package study.querydsl.dto.support;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * DTO 클래스별 프로퍼티 접근자 메타데이터
+ * 클래스당 한번만 getter / setter / 기본생성자를 LambdaMetafactory 로 람다로 만들어두고
+ * 이후에는 리플렉션 없이 직접 호출한다.
+ */
+public final class BeanAccessors {
+
+    private static final ClassValue<BeanAccessors> CACHE = new ClassValue<BeanAccessors>() {
+        @Override
+        protected BeanAccessors computeValue(Class<?> type) {
+            return new BeanAccessors(type);
+        }
+    };
+
+    public static BeanAccessors of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    private final Class<?> type;
+    private final Supplier<Object> constructor;
+    private final Map<String, Property> properties;
+
+    private BeanAccessors(Class<?> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        this.constructor = constructor(lookup, type);
+        Map<String, Property> properties = new LinkedHashMap<>();
+        for (PropertyDescriptor descriptor : beanInfo(type).getPropertyDescriptors()) {
+            Method readMethod = descriptor.getReadMethod();
+            Method writeMethod = descriptor.getWriteMethod();
+            if (readMethod != null && readMethod.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            if (readMethod == null && writeMethod == null) {
+                continue;
+            }
+            properties.put(descriptor.getName(), new Property(descriptor.getName(), descriptor.getPropertyType(),
+                    readMethod != null ? getter(lookup, type, readMethod) : null,
+                    writeMethod != null ? setter(lookup, type, writeMethod) : null));
+        }
+        this.properties = Collections.unmodifiableMap(properties);
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * 없는 프로퍼티면 null
+     */
+    public Property getProperty(String name) {
+        return properties.get(name);
+    }
+
+    public Map<String, Property> getProperties() {
+        return properties;
+    }
+
+    public boolean isInstantiable() {
+        return constructor != null;
+    }
+
+    public Object newInstance() {
+        if (constructor == null) {
+            throw new IllegalStateException(type.getName() + " has no public no-arg constructor");
+        }
+        return constructor.get();
+    }
+
+    public static final class Property {
+        private final String name;
+        private final Class<?> type;
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+
+        Property(String name, Class<?> type, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public boolean isReadable() {
+            return getter != null;
+        }
+
+        public boolean isWritable() {
+            return setter != null;
+        }
+
+        public Object get(Object bean) {
+            return getter.apply(bean);
+        }
+
+        public void set(Object bean, Object value) {
+            setter.accept(bean, value);
+        }
+    }
+
+    private static BeanInfo beanInfo(Class<?> type) {
+        try {
+            return Introspector.getBeanInfo(type);
+        } catch (IntrospectionException e) {
+            throw new IllegalArgumentException("cannot introspect " + type.getName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> constructor(MethodHandles.Lookup lookup, Class<?> type) {
+        MethodHandle handle;
+        try {
+            handle = lookup.findConstructor(type, MethodType.methodType(void.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+        try {
+            CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                    MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class),
+                    handle,
+                    MethodType.methodType(type));
+            return (Supplier<Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("cannot create constructor for " + type.getName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> getter(MethodHandles.Lookup lookup, Class<?> type, Method readMethod) {
+        try {
+            MethodHandle handle = lookup.unreflect(readMethod);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(wrap(readMethod.getReturnType()), type));
+            return (Function<Object, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("cannot create getter for " + readMethod, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setter(MethodHandles.Lookup lookup, Class<?> type, Method writeMethod) {
+        try {
+            MethodHandle handle = lookup.unreflect(writeMethod);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(void.class, type, wrap(writeMethod.getParameterTypes()[0])));
+            return (BiConsumer<Object, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("cannot create setter for " + writeMethod, e);
+        }
+    }
+
+    static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
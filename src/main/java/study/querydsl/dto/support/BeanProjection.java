@@ -0,0 +1,105 @@
+package study.querydsl.dto.support;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Visitor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Projections.bean / Projections.fields 대체용 FactoryExpression
+ * 프로퍼티 이름(별칭)은 생성할때 한번만 setter 로 연결해두고, 행마다 리플렉션 없이 기본생성자 + setter 람다를 직접 호출한다.
+ * 클래스별 생성자/setter 람다는 {@link BeanAccessors} 에 캐시되어 처음 한번만 만들어진다.
+ *
+ * <pre>
+ * queryFactory
+ *         .select(BeanProjection.bean(UserDto.class
+ *                 , member.username.as("name")
+ *                 , ExpressionUtils.as(JPAExpressions.select(memberSub.age.max()).from(memberSub), "age")))
+ *         .from(member)
+ * </pre>
+ */
+public class BeanProjection<T> extends FactoryExpressionBase<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Expression<?>> args;
+    private final transient BeanAccessors accessors;
+    private final transient BeanAccessors.Property[] properties;
+
+    public static <T> BeanProjection<T> bean(Class<? extends T> type, Expression<?>... args) {
+        return new BeanProjection<T>(type, args);
+    }
+
+    protected BeanProjection(Class<? extends T> type, Expression<?>... args) {
+        super(type);
+        this.args = Collections.unmodifiableList(Arrays.asList(args));
+        this.accessors = BeanAccessors.of(type);
+        if (!accessors.isInstantiable()) {
+            throw new IllegalArgumentException(type.getName() + " has no public no-arg constructor");
+        }
+        this.properties = new BeanAccessors.Property[args.length];
+        for (int i = 0; i < args.length; i++) {
+            String name = propertyName(args[i]);
+            BeanAccessors.Property property = accessors.getProperty(name);
+            if (property == null || !property.isWritable()) {
+                throw new IllegalArgumentException("no setter for '" + name + "' in " + type.getName());
+            }
+            properties[i] = property;
+        }
+    }
+
+    //경로면 경로이름, as() 로 별칭을 준 식이면 별칭
+    private static String propertyName(Expression<?> expr) {
+        if (expr instanceof Path<?>) {
+            return ((Path<?>) expr).getMetadata().getName();
+        }
+        if (expr instanceof Operation<?>) {
+            Operation<?> operation = (Operation<?>) expr;
+            if (operation.getOperator() == Ops.ALIAS && operation.getArg(1) instanceof Path<?>) {
+                return ((Path<?>) operation.getArg(1)).getMetadata().getName();
+            }
+        }
+        throw new IllegalArgumentException("Unsupported expression " + expr + " - use a path or as(alias)");
+    }
+
+    @Override
+    public List<Expression<?>> getArgs() {
+        return args;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T newInstance(Object... values) {
+        Object bean = accessors.newInstance();
+        for (int i = 0; i < values.length; i++) {
+            BeanAccessors.Property property = properties[i];
+            if (values[i] != null || !property.getType().isPrimitive()) {
+                property.set(bean, values[i]);
+            }
+        }
+        return (T) bean;
+    }
+
+    @Override
+    public <R, C> R accept(Visitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (obj instanceof BeanProjection<?>) {
+            BeanProjection<?> other = (BeanProjection<?>) obj;
+            return getType().equals(other.getType()) && args.equals(other.args);
+        } else {
+            return false;
+        }
+    }
+}
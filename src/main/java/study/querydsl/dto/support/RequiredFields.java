@@ -0,0 +1,87 @@
+package study.querydsl.dto.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO 필수값 검사 (null, "", 공백이면 실패)
+ * 검사할 필드 목록을 미리 {@link #of(Class, String...)} 로 만들어두면 호출때는 getter 람다만 돌기 때문에
+ * 리플렉션도, 객체생성도 없다. 원시타입 필드는 null 이 될수 없으므로 검사에서 뺀다.
+ * 클래스에 없는 이름은 무시한다. (기존 ChkParam 과 동일)
+ */
+public final class RequiredFields {
+
+    private final Class<?> type;
+    private final BeanAccessors.Property[] properties;
+
+    private RequiredFields(Class<?> type, BeanAccessors.Property[] properties) {
+        this.type = type;
+        this.properties = properties;
+    }
+
+    public static RequiredFields of(Class<?> type, String... names) {
+        BeanAccessors accessors = BeanAccessors.of(type);
+        List<BeanAccessors.Property> properties = new ArrayList<>();
+        for (String name : names) {
+            BeanAccessors.Property property = accessors.getProperty(name);
+            if (isCheckable(property)) {
+                properties.add(property);
+            }
+        }
+        return new RequiredFields(type, properties.toArray(new BeanAccessors.Property[0]));
+    }
+
+    public boolean check(Object dto) {
+        if (dto.getClass() != type) {
+            return check(dto, names());
+        }
+        for (BeanAccessors.Property property : properties) {
+            if (isBlank(property.get(dto))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 미리 만들어두지 않은 경우용 - 클래스별 메타데이터는 캐시된것을 쓰고 이름으로 찾는다.
+     */
+    public static boolean check(Object dto, String[] names) {
+        BeanAccessors accessors = BeanAccessors.of(dto.getClass());
+        for (String name : names) {
+            BeanAccessors.Property property = accessors.getProperty(name);
+            if (isCheckable(property) && isBlank(property.get(dto))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCheckable(BeanAccessors.Property property) {
+        return property != null && property.isReadable() && !property.getType().isPrimitive();
+    }
+
+    private String[] names() {
+        String[] names = new String[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            names[i] = properties[i].getName();
+        }
+        return names;
+    }
+
+    private static boolean isBlank(Object value) {
+        if (value == null) {
+            return true;
+        }
+        if (value instanceof CharSequence) {
+            CharSequence chars = (CharSequence) value;
+            for (int i = 0; i < chars.length(); i++) {
+                if (chars.charAt(i) > ' ') { // String.trim() 과 같은 기준
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,11 @@
+package study.querydsl.monitoring;
+
+/**
+ * 요청 하나가 설정된 쿼리수(sql.metrics.budget)를 넘겼을때 (action=FAIL)
+ */
+public class SqlBudgetExceededException extends RuntimeException {
+
+    public SqlBudgetExceededException(String endpoint, int count, int limit) {
+        super(endpoint + " executed " + count + " statements (budget " + limit + ")");
+    }
+}
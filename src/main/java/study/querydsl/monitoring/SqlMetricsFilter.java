@@ -0,0 +1,139 @@
+package study.querydsl.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청별 SQL 통계 - 쿼리수 / 총 JDBC 시간 / 가장 느린 쿼리
+ * 엔드포인트(매핑 패턴), 결과(outcome)별로 히스토그램(sql.statements, sql.time)을 남기고, 개발환경에서는 X-SQL-* 응답 헤더로 보여준다.
+ * 설정된 쿼리수(budget)를 넘기면 로그를 남기거나 실패시킨다. -> N+1 이 생기면 바로 보임
+ *
+ * 비동기 API(/async/**)는 다른 스레드에서 쿼리가 실행되므로 제외
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SqlMetricsFilter extends OncePerRequestFilter {
+
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final SqlMetricsProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return pathMatcher.match("/async/**", request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        //헤더를 붙이거나 budget 초과시 500 으로 바꾸려면 응답이 커밋되기 전이어야 하므로 본문을 버퍼링한다.
+        ContentCachingResponseWrapper buffered = buffering(request) ? new ContentCachingResponseWrapper(response) : null;
+
+        SqlStatementStats.start(properties.isCaptureSql(), false); //요청마다 SQL 목록은 모으지 않는다 (가장 느린 쿼리만)
+        SqlStatementStats stats;
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, buffered != null ? buffered : response);
+            failed = false;
+        } finally {
+            stats = SqlStatementStats.stop();
+            //예외로 끝난 요청도 남긴다 (실패하는 요청의 쿼리가 빠지지 않게)
+            record(endpoint(request), stats, failed ? Outcome.SERVER_ERROR : Outcome.forStatus(response.getStatus()));
+        }
+
+        String endpoint = endpoint(request);
+        try {
+            checkBudget(endpoint, stats);
+        } catch (SqlBudgetExceededException e) {
+            if (buffered != null) {
+                buffered.resetBuffer();
+            }
+            throw e;
+        }
+
+        if (buffered != null) {
+            if (properties.isHeaders()) {
+                buffered.setHeader("X-SQL-Count", String.valueOf(stats.getCount()));
+                buffered.setHeader("X-SQL-Time-Ms", String.valueOf(stats.getTotalMillis()));
+                buffered.setHeader("X-SQL-Slowest-Ms", String.valueOf(stats.getSlowestMillis()));
+                if (properties.isCaptureSql() && stats.getSlowestSql() != null) {
+                    buffered.setHeader("X-SQL-Slowest", oneLine(stats.getSlowestSql()));
+                }
+            }
+            buffered.copyBodyToResponse();
+        }
+    }
+
+    private boolean buffering(HttpServletRequest request) {
+        if (!properties.isHeaders() && properties.getBudget().getAction() != SqlMetricsProperties.Action.FAIL) {
+            return false;
+        }
+        for (String exclude : properties.getHeaderExcludes()) {
+            if (pathMatcher.match(exclude, request.getRequestURI())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //실제 URI 가 아니라 매핑 패턴으로 묶어야 태그 수가 폭발하지 않는다.
+    private static String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : UNKNOWN;
+    }
+
+    private void record(String endpoint, SqlStatementStats stats, Outcome outcome) {
+        DistributionSummary.builder("sql.statements")
+                .description("JDBC statements per request")
+                .tag("uri", endpoint)
+                .tag("outcome", outcome.name())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.getCount());
+        Timer.builder("sql.time")
+                .description("Total JDBC time per request")
+                .tag("uri", endpoint)
+                .tag("outcome", outcome.name())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.getTotalNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void checkBudget(String endpoint, SqlStatementStats stats) {
+        SqlMetricsProperties.Budget budget = properties.getBudget();
+        int limit = budget.limitOf(endpoint);
+        if (limit <= 0 || stats.getCount() <= limit) {
+            return;
+        }
+        if (budget.getAction() == SqlMetricsProperties.Action.FAIL) {
+            throw new SqlBudgetExceededException(endpoint, stats.getCount(), limit);
+        }
+        log.warn("SQL budget exceeded: {} executed {} statements (budget {}), slowest {}ms {}",
+                endpoint, stats.getCount(), limit, stats.getSlowestMillis(),
+                stats.getSlowestSql() != null ? oneLine(stats.getSlowestSql()) : "");
+    }
+
+    private static String oneLine(String sql) {
+        String line = sql.replaceAll("\\s+", " ").trim();
+        return line.length() > 200 ? line.substring(0, 200) + "..." : line;
+    }
+}
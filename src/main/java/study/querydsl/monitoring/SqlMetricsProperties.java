@@ -0,0 +1,55 @@
+package study.querydsl.monitoring;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 요청별 SQL 통계 설정 (sql.metrics)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sql.metrics")
+public class SqlMetricsProperties {
+
+    /** X-SQL-* 응답 헤더 (개발용 - 헤더를 쓰려고 응답 본문을 버퍼링한다) */
+    private boolean headers = false;
+
+    /** 실행된 SQL(바인딩값 포함)을 모아서 가장 느린 쿼리를 헤더/로그에 남긴다 */
+    private boolean captureSql = false;
+
+    /** 응답 본문을 버퍼링하지 않을 경로 (헤더, budget FAIL 적용 안됨) - 스트리밍 응답은 버퍼링하면 안됨 */
+    private List<String> headerExcludes = new ArrayList<>(Collections.singletonList("/v1/members/export"));
+
+    private Budget budget = new Budget();
+
+    public enum Action {
+        LOG, FAIL
+    }
+
+    @Getter
+    @Setter
+    public static class Budget {
+
+        /** 엔드포인트별 설정이 없을때 요청당 최대 쿼리수 (0 이면 검사 안함) */
+        private int defaultLimit = 0;
+
+        /** 엔드포인트(매핑 패턴)별 요청당 최대 쿼리수 ex) "[/v1/members]": 1 */
+        private Map<String, Integer> endpoints = new HashMap<>();
+
+        /** 초과시 LOG - 경고 로그, FAIL - 500 응답 */
+        private Action action = Action.LOG;
+
+        public int limitOf(String endpoint) {
+            return endpoints.getOrDefault(endpoint, defaultLimit);
+        }
+    }
+}
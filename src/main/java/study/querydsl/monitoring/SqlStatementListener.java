@@ -0,0 +1,27 @@
+package study.querydsl.monitoring;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy 이벤트 리스너 - 실행된 쿼리를 현재 스레드의 {@link SqlStatementStats} 에 기록
+ * (p6spy-spring-boot-starter 가 JdbcEventListener 빈을 자동으로 등록해줌)
+ */
+@Component
+public class SqlStatementListener extends SimpleJdbcEventListener {
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        SqlStatementStats stats = SqlStatementStats.current();
+        if (stats == null) {
+            return;
+        }
+        //바인딩값 치환 비용이 있어서 수집할때만 값까지 넣는다. (문자열은 필요할때만 만들어짐)
+        stats.record(timeElapsedNanos, () -> stats.isCaptureSql()
+                ? statementInformation.getSqlWithValues()
+                : statementInformation.getSql());
+    }
+}
@@ -0,0 +1,103 @@
+package study.querydsl.monitoring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 현재 스레드에서 실행된 SQL 통계 (실행 횟수, 총 JDBC 시간, 가장 느린 쿼리)
+ * {@link #start()} 부터 {@link #stop()} 까지 {@link SqlStatementListener} 가 쌓는다.
+ * 스레드 기준이므로 다른 스레드(dbExecutor, countQueryExecutor)에서 실행된 쿼리는 잡히지 않는다.
+ * 요청마다 쓰는 경우(SqlMetricsFilter)는 가장 느린 쿼리 하나만 들고있고, 실행된 SQL 목록은 테스트에서 켤때만 모은다.
+ */
+public class SqlStatementStats {
+
+    private static final ThreadLocal<SqlStatementStats> CURRENT = new ThreadLocal<>();
+
+    private final boolean captureSql;
+    private final boolean keepStatements;
+    private int count;
+    private long totalNanos;
+    private long slowestNanos;
+    private String slowestSql;
+    private final List<String> statements = new ArrayList<>();
+
+    private SqlStatementStats(boolean captureSql, boolean keepStatements) {
+        this.captureSql = captureSql;
+        this.keepStatements = keepStatements;
+    }
+
+    public static SqlStatementStats start() {
+        return start(false);
+    }
+
+    /**
+     * captureSql 이면 실행된 SQL(바인딩값 포함)을 모두 모아둔다. (테스트용)
+     */
+    public static SqlStatementStats start(boolean captureSql) {
+        return start(captureSql, captureSql);
+    }
+
+    /**
+     * captureSql - 가장 느린 쿼리를 바인딩값까지 넣어서 보관, keepStatements - 실행된 SQL 을 모두 모아둠 (요청 내내 메모리에 쌓임)
+     */
+    public static SqlStatementStats start(boolean captureSql, boolean keepStatements) {
+        SqlStatementStats stats = new SqlStatementStats(captureSql, keepStatements);
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static SqlStatementStats current() {
+        return CURRENT.get();
+    }
+
+    public static SqlStatementStats stop() {
+        SqlStatementStats stats = CURRENT.get();
+        CURRENT.remove();
+        return stats;
+    }
+
+    //SQL 문자열은 가장 느린 쿼리가 바뀌거나 목록을 모을때만 만든다 (바인딩값 치환 비용)
+    void record(long elapsedNanos, Supplier<String> sql) {
+        count++;
+        totalNanos += elapsedNanos;
+        String statement = keepStatements ? sql.get() : null;
+        if (slowestSql == null || elapsedNanos > slowestNanos) {
+            slowestNanos = elapsedNanos;
+            slowestSql = statement != null ? statement : sql.get();
+        }
+        if (keepStatements) {
+            statements.add(statement);
+        }
+    }
+
+    boolean isCaptureSql() {
+        return captureSql;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getSlowestMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowestNanos);
+    }
+
+    public String getSlowestSql() {
+        return slowestSql;
+    }
+
+    public List<String> getStatements() {
+        return Collections.unmodifiableList(statements);
+    }
+}
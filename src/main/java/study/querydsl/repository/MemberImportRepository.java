@@ -0,0 +1,190 @@
+package study.querydsl.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.dto.MemberImportResult;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * MemberTeamDto 행(CSV / NDJSON)을 한줄씩 읽어서 회원을 대량 저장한다.
+ * 팀은 이름별로 한번만 조회(없으면 생성)하고, 회원은 batchSize 행마다 새 트랜잭션(REQUIRES_NEW)으로 커밋해서
+ * hibernate.jdbc.batch_size 로 묶인 insert 가 나가고 트랜잭션/영속성 컨텍스트가 파일 크기만큼 커지지 않게 한다.
+ * 형식이 잘못된 행은 건너뛰고 invalid 로 센다.
+ * 배치 저장중 DB 오류가 나면 그 배치만 롤백하고 멈춘다. 앞에서 커밋된 배치는 그대로 남고,
+ * 결과에 저장된 행수와 실패한 배치의 줄 범위(failedFromLine ~ failedToLine)를 담아서 돌려준다. (그 줄부터 다시 올리면 됨)
+ * teamName 이 없는 행은 팀 없이 저장한다.
+ */
+@Slf4j
+@Repository
+public class MemberImportRepository {
+
+    public enum Format { CSV, NDJSON }
+
+    private final EntityManager em;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final TransactionTemplate batchTransaction;
+
+    public MemberImportRepository(EntityManager em, ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                                  @Value("${member.import.batch-size:100}") int batchSize) {
+        this.em = em;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public MemberImportResult importMembers(BufferedReader reader, Format format) throws IOException {
+        long start = System.currentTimeMillis();
+        Map<String, Long> teamIds = new HashMap<>(); // 커밋된 배치에서 찾거나 만든 팀만 들어간다
+        int[] teamsCreated = {0};
+        List<MemberTeamDto> batch = new ArrayList<>(batchSize);
+        long rows = 0;
+        long skipped = 0;
+        long invalid = 0;
+        long lineNumber = 0;
+        long batchFromLine = 0;
+
+        String[] header = null;
+        if (format == Format.CSV) {
+            header = readCsvHeader(reader);
+            lineNumber++;
+        }
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!hasText(line)) {
+                    continue;
+                }
+                MemberTeamDto dto;
+                try {
+                    dto = format == Format.CSV ? parseCsv(header, line) : objectMapper.readValue(line, MemberTeamDto.class);
+                } catch (JsonProcessingException | NumberFormatException e) {
+                    invalid++;
+                    log.debug("member import: invalid line {} ({})", lineNumber, e.getMessage());
+                    continue;
+                }
+                if (!hasText(dto.getUsername())) {
+                    skipped++;
+                    continue;
+                }
+
+                if (batch.isEmpty()) {
+                    batchFromLine = lineNumber;
+                }
+                batch.add(dto);
+                if (batch.size() == batchSize) {
+                    rows += saveBatch(batch, teamIds, teamsCreated);
+                }
+            }
+            rows += saveBatch(batch, teamIds, teamsCreated);
+        } catch (PersistenceException | DataAccessException | TransactionException e) {
+            //실패한 배치만 롤백된다 - 앞 배치는 커밋된 채로 남으므로 여기까지의 결과와 실패한 줄 범위를 돌려준다
+            MemberImportResult result = new MemberImportResult(rows, skipped, invalid, teamsCreated[0], System.currentTimeMillis() - start);
+            result.failed(batchFromLine, lineNumber, e.getMessage());
+            log.warn("member import stopped at lines {}-{}: {}", batchFromLine, lineNumber, result, e);
+            return result;
+        }
+
+        MemberImportResult result = new MemberImportResult(rows, skipped, invalid, teamsCreated[0], System.currentTimeMillis() - start);
+        log.info("member import finished: {}", result);
+        return result;
+    }
+
+    //배치 하나를 새 트랜잭션으로 저장 - 커밋하면서 flush 되고 영속성 컨텍스트도 닫힌다.
+    //이 배치에서 찾거나 만든 팀 id 는 커밋이 끝난 뒤에 teamIds 로 옮긴다. (롤백되면 없는 팀 id 가 남지 않게)
+    private int saveBatch(List<MemberTeamDto> batch, Map<String, Long> teamIds, int[] teamsCreated) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<String, Long> batchTeamIds = new HashMap<>();
+        int[] batchTeamsCreated = {0};
+        batchTransaction.executeWithoutResult(status -> {
+            for (MemberTeamDto dto : batch) {
+                Member member = new Member(dto.getUsername(), dto.getAge());
+                if (hasText(dto.getTeamName())) {
+                    Long teamId = teamIds.get(dto.getTeamName());
+                    if (teamId == null) {
+                        teamId = batchTeamIds.computeIfAbsent(dto.getTeamName(), teamName -> findOrCreateTeam(teamName, batchTeamsCreated));
+                    }
+                    member.setTeam(em.getReference(Team.class, teamId)); // 프록시만 걸어줌 - 팀 조회/members 컬렉션 로딩 없음
+                }
+                em.persist(member);
+            }
+        });
+        teamIds.putAll(batchTeamIds);
+        teamsCreated[0] += batchTeamsCreated[0];
+        int saved = batch.size();
+        batch.clear();
+        return saved;
+    }
+    private Long findOrCreateTeam(String teamName, int[] teamsCreated) {
+        Optional<Team> found = em.unwrap(Session.class).bySimpleNaturalId(Team.class).loadOptional(teamName);
+        if (found.isPresent()) {
+            return found.get().getId();
+        }
+        Team team = new Team(teamName);
+        em.persist(team);
+        teamsCreated[0]++;
+        return team.getId();
+    }
+
+    //CSV 는 첫줄 헤더로 컬럼 순서를 정한다. (username,age,teamName - 따옴표 이스케이프는 지원안함)
+    private String[] readCsvHeader(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            return new String[0];
+        }
+        String[] columns = header.split(",", -1);
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = columns[i].trim();
+        }
+        return columns;
+    }
+
+    private MemberTeamDto parseCsv(String[] header, String line) {
+        String[] values = line.split(",", -1);
+        MemberTeamDto dto = new MemberTeamDto();
+        for (int i = 0; i < header.length && i < values.length; i++) {
+            String value = values[i].trim();
+            switch (header[i]) {
+                case "username":
+                    dto.setUsername(value);
+                    break;
+                case "age":
+                    dto.setAge(hasText(value) ? Integer.parseInt(value) : 0);
+                    break;
+                case "teamName":
+                    dto.setTeamName(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return dto;
+    }
+}
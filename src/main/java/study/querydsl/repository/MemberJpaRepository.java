@@ -1,20 +1,34 @@
 package study.querydsl.repository;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.Entitiy.Member;
 import study.querydsl.Entitiy.Team;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.dto.support.RequiredFields;
+import study.querydsl.repository.support.FullTextHits;
+import study.querydsl.repository.support.MemberColumnarEngine;
+import study.querydsl.repository.support.MemberColumnarStore;
+import study.querydsl.repository.support.MemberFullTextSearch;
+import study.querydsl.repository.support.MemberSearchQueryTemplates;
+import study.querydsl.repository.support.MemberSearchPredicates;
+import study.querydsl.repository.support.SearchCacheEvictListener;
+import study.querydsl.repository.support.SearchResultCache;
 
 import javax.persistence.EntityManager;
-import javax.transaction.Transactional;
-import java.lang.reflect.Field;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.Entitiy.QMember.member;
@@ -23,17 +37,31 @@ import static study.querydsl.Entitiy.QTeam.team;
 @Repository
 public class MemberJpaRepository {
 
+    private static final RequiredFields SAVE_REQUIRED = RequiredFields.of(MemberTeamDto.class, "username", "age", "teamName");
+
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
-
-    public MemberJpaRepository(EntityManager em ){
+    private final SearchResultCache searchResultCache;
+    private final SearchCacheEvictListener searchCacheEvictListener;
+    private final MemberFullTextSearch memberFullTextSearch;
+    private final MemberColumnarEngine memberColumnarEngine;
+    private final boolean queryTemplates;
+
+    public MemberJpaRepository(EntityManager em, SearchResultCache searchResultCache, SearchCacheEvictListener searchCacheEvictListener,
+                               MemberFullTextSearch memberFullTextSearch, MemberColumnarEngine memberColumnarEngine,
+                               @Value("${member.search.query-templates.enabled:true}") boolean queryTemplates){
         this.em = em;
         this.queryFactory=new JPAQueryFactory(em); //queryFactory를 생성할때 2가지방법 지금과같이 생성자를 사용할지 아니면 bean으로 등록하여 실행할지 편한방식을 사용해서쓰자.
+        this.searchResultCache = searchResultCache;
+        this.searchCacheEvictListener = searchCacheEvictListener;
+        this.memberFullTextSearch = memberFullTextSearch;
+        this.memberColumnarEngine = memberColumnarEngine;
+        this.queryTemplates = queryTemplates;
     }
 
     public void saveMember(Member member){
         em.persist(member);
-
+        searchCacheEvictListener.evictOnCompletion(); //엔티티 리스너도 비우지만 명시적으로 한번 더 (트랜잭션당 한번만 등록됨)
     }
 
     public Optional<Member> findById(Long id){
@@ -62,9 +90,17 @@ public class MemberJpaRepository {
         return queryFactory
                 .selectFrom(team)
                 .where(team.name.eq(teamName))
+                .setHint(QueryHints.CACHEABLE, true) //쿼리캐시 (l2cache 프로필)
                 .fetch();
     }
 
+    //팀 이름은 natural id - 영속성컨텍스트 -> 2차캐시(natural id 캐시) -> DB 순으로 찾는다.
+    public Optional<Team> findTeamByName(String teamName){
+        return em.unwrap(Session.class)
+                .bySimpleNaturalId(Team.class)
+                .loadOptional(teamName);
+    }
+
     public List<Member> findByusername_QueryDsl(String username){
         return queryFactory
                 .selectFrom(member)
@@ -74,6 +110,7 @@ public class MemberJpaRepository {
 
     public void saveTeam(Team team) {
         em.persist(team);
+        searchCacheEvictListener.evictOnCompletion();
     }
 
     /**
@@ -82,14 +119,16 @@ public class MemberJpaRepository {
      *     */
 
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition){
-
+        if (useTemplate(condition)) { //조건 조합별 JPQL 에 값만 바인딩 (Querydsl 직렬화 없음)
+            return MemberSearchQueryTemplates.search(em, condition);
+        }
         BooleanBuilder builder= new BooleanBuilder();
 
-        if (hasText(condition.getUsername())) { //꿀팁 웹에서는 hasText가 null 이나 "" 를 확인해준다.
-            builder.and(member.username.eq(condition.getUsername()));
+        if (hasText(condition.getUsername()) || hasText(condition.getUsernamePrefix())) { //꿀팁 웹에서는 hasText가 null 이나 "" 를 확인해준다.
+            builder.and(MemberSearchPredicates.username(condition));
         }
         if (hasText(condition.getTeamName())) {
-            builder.and(team.name.eq(condition.getTeamName()));
+            builder.and(MemberSearchPredicates.teamNameEq(condition.getTeamName()));
         }
         if (condition.getAgeGoe() != null) {
             builder.and(member.age.goe(condition.getAgeGoe()));
@@ -119,8 +158,70 @@ public class MemberJpaRepository {
      *
      * searchMember WhereParam 이용
      *     */
+    @Transactional(readOnly = true) //replica 프로필이면 복제본에서 읽는다
     public List<MemberTeamDto> searchByWhere(MemberSearchCondition condition){
+        MemberColumnarStore columnar = memberColumnarEngine.storeFor(condition); //켜져있으면 메모리 스냅샷에서 (DB 안감)
+        if (columnar != null) {
+            return columnar.search(condition);
+        }
+        //같은 조건이 반복해서 들어오면 캐시된 결과 (회원/팀 쓰기가 커밋되면 비워짐)
+        return searchResultCache.getList(condition.normalized(), () -> {
+            if (useTemplate(condition)) {
+                return MemberSearchQueryTemplates.search(em, condition);
+            }
+            //q 가 있으면 전문검색 점수순
+            FullTextHits hits = fullTextHits(condition);
+            List<MemberTeamDto> result = searchByWhereQuery(condition, hits)
+                    .fetch();
+            return hits != null ? hits.rank(result) : result;
+        });
+    }
+
+    /**
+     *
+     * searchMember 미리 만든 JPQL 템플릿 이용 (MemberSearchQueryTemplates) - 조건 조합별 JPQL 에 값만 바인딩
+     * 템플릿이 처리못하는 조건(앞부분, 대소문자 무시, 전문검색)은 searchByWhere 로
+     *     */
+    @Transactional(readOnly = true)
+    public List<MemberTeamDto> searchByTemplate(MemberSearchCondition condition){
+        if (!MemberSearchQueryTemplates.supports(condition)) {
+            return searchByWhere(condition);
+        }
+        return MemberSearchQueryTemplates.search(em, condition);
+    }
 
+    /**
+     *
+     * searchMember export 용 - 결과를 List 로 모으지 않고 forward-only 커서(ScrollableResults)로 한건씩 consumer 에 넘긴다.
+     * DTO 프로젝션이라 영속성 컨텍스트에 엔티티가 쌓이지 않지만 fetchSize 마다 clear 해서 비워둔다.
+     *     */
+    @Transactional(readOnly = true)
+    public long streamByWhere(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamDto> consumer){
+
+        long count = 0;
+        try (CloseableIterator<MemberTeamDto> iterator = searchByWhereQuery(condition, fullTextHits(condition))
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.READ_ONLY, true)
+                .iterate()) {
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                if (++count % fetchSize == 0) {
+                    em.clear();
+                }
+            }
+        }
+        return count;
+    }
+
+    private boolean useTemplate(MemberSearchCondition condition) {
+        return queryTemplates && MemberSearchQueryTemplates.supports(condition);
+    }
+
+    private FullTextHits fullTextHits(MemberSearchCondition condition) {
+        return hasText(condition.getQ()) ? memberFullTextSearch.find(condition.getQ()) : null;
+    }
+
+    private JPAQuery<MemberTeamDto> searchByWhereQuery(MemberSearchCondition condition, FullTextHits hits) {
         return queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId")
@@ -132,11 +233,11 @@ public class MemberJpaRepository {
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
-                        usernameEq(condition.getUsername())
+                        usernameEq(condition)
                         ,teamnameEq(condition.getTeamName())
                         ,ageGoeEq(condition.getAgeGoe())
-                        ,ageLoeEq(condition.getAgeLoe()))
-                .fetch();
+                        ,ageLoeEq(condition.getAgeLoe())
+                        ,hits != null ? hits.predicate() : null);
     }
 
     private BooleanExpression ageLoeEq(Integer ageLoe) {
@@ -149,11 +250,11 @@ public class MemberJpaRepository {
     }
 
     private BooleanExpression teamnameEq(String teamName) {
-        return hasText(teamName)? team.name.eq(teamName) : null;
+        return MemberSearchPredicates.teamNameEq(teamName); //team_id 인덱스를 타도록 서브쿼리
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
+    private BooleanExpression usernameEq(MemberSearchCondition condition) {
+        return MemberSearchPredicates.username(condition); //일치 + 앞부분 검색, ignoreCase 면 username_lower 컬럼
     }
 
 
@@ -170,18 +271,17 @@ public class MemberJpaRepository {
      *     private String teamName;
      *     */
     @Transactional
-    public MemberTeamDto saveByQueryDsl(MemberTeamDto memberTeamDto) throws IllegalAccessException {
+    public MemberTeamDto saveByQueryDsl(MemberTeamDto memberTeamDto) {
 
-            if(ChkParam(memberTeamDto, new String[]{"username", "age","teamName"})) {
-                Team team = null;
+            if(SAVE_REQUIRED.check(memberTeamDto)) {
+                Team team = findTeamByName(memberTeamDto.getTeamName()).orElse(null);
                 Member member =null;
 
-                if (findByTeamName(memberTeamDto.getTeamName()).size()==0) {
+                if (team == null) {
                     team =new Team(memberTeamDto.getTeamName());
                     saveTeam(team);
                 }
 
-                team = findByTeamName(memberTeamDto.getTeamName()).get(0);
                 member= new Member(memberTeamDto.getUsername(), memberTeamDto.getAge(),team);
                 saveMember(member);
 
@@ -193,20 +293,9 @@ public class MemberJpaRepository {
     }
 
 
-    //DTO 값 널체크
-    public boolean ChkParam(Object obj, String[] valueNames) throws IllegalAccessException{
-
-        for (Field field : obj.getClass().getDeclaredFields()) {
-            field.setAccessible(true);
-            for (String str : valueNames) {
-                if (field.getName().equals(str)) {
-                    if (field.get(obj) == null || field.get(obj).toString().trim().equals("")) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+    //DTO 값 널체크 - 매번 getDeclaredFields/setAccessible 하던것을 클래스별로 캐시된 getter 로 검사 (RequiredFields)
+    public boolean ChkParam(Object obj, String[] valueNames) {
+        return RequiredFields.check(obj, valueNames);
     }
 
 
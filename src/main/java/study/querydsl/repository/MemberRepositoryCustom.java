@@ -2,6 +2,7 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 
@@ -12,4 +13,6 @@ public interface MemberRepositoryCustom {
     List<MemberTeamDto> search (MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple (MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex (MemberSearchCondition condition, Pageable pageable);
+    Slice<MemberTeamDto> searchSlice (MemberSearchCondition condition, Pageable pageable);
+    Slice<MemberTeamDto> searchSlice (MemberSearchCondition condition, Long lastMemberId, int size);
 }
@@ -1,22 +1,39 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.NoArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
 import study.querydsl.Entitiy.Member;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.support.FullTextHits;
+import study.querydsl.repository.support.MemberColumnarEngine;
+import study.querydsl.repository.support.MemberColumnarStore;
+import study.querydsl.repository.support.MemberFullTextSearch;
+import study.querydsl.repository.support.MemberSearchPredicates;
+import study.querydsl.repository.support.MemberSearchQueryTemplates;
+import study.querydsl.repository.support.PageCountExecutor;
+import study.querydsl.repository.support.SearchCountCache;
+import study.querydsl.repository.support.SearchResultCache;
 
 import javax.persistence.EntityManager;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.springframework.util.StringUtils.hasText;
@@ -29,17 +46,48 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom  {
 
 
 
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
-
-    public MemberRepositoryImpl(EntityManager em) {
+    private final SearchCountCache searchCountCache;
+    private final SearchResultCache searchResultCache;
+    private final PageCountExecutor pageCountExecutor;
+    private final MemberFullTextSearch memberFullTextSearch;
+    private final MemberColumnarEngine memberColumnarEngine;
+    private final boolean queryTemplates;
+
+    public MemberRepositoryImpl(EntityManager em, SearchCountCache searchCountCache, SearchResultCache searchResultCache,
+                                PageCountExecutor pageCountExecutor, MemberFullTextSearch memberFullTextSearch,
+                                MemberColumnarEngine memberColumnarEngine,
+                                @Value("${member.search.query-templates.enabled:true}") boolean queryTemplates) {
+        this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.searchCountCache = searchCountCache;
+        this.searchResultCache = searchResultCache;
+        this.pageCountExecutor = pageCountExecutor;
+        this.memberFullTextSearch = memberFullTextSearch;
+        this.memberColumnarEngine = memberColumnarEngine;
+        this.queryTemplates = queryTemplates;
     }
 
 
+    //같은 조건이 반복해서 들어오면 캐시된 결과를 돌려준다. (회원/팀 쓰기가 커밋되면 비워짐)
     @Override
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition){
+        MemberColumnarStore columnar = memberColumnarEngine.storeFor(condition); //켜져있으면 메모리 스냅샷에서 (DB 안감)
+        if (columnar != null) {
+            return columnar.search(condition);
+        }
+        return searchResultCache.getList(condition.normalized(), () -> fetchSearch(condition));
+    }
 
-        return queryFactory
+    private List<MemberTeamDto> fetchSearch(MemberSearchCondition condition){
+        if (queryTemplates && MemberSearchQueryTemplates.supports(condition)) { //조건 조합별 JPQL 에 값만 바인딩
+            return MemberSearchQueryTemplates.search(em, condition);
+        }
+        //q 가 있으면 전문검색 점수순으로 정렬해서 돌려준다.
+        FullTextHits hits = fullTextHits(condition);
+        List<MemberTeamDto> result = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId")
                         , member.username
@@ -50,11 +98,13 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom  {
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
-                        usernameEq(condition.getUsername())
+                        usernameEq(condition)
                         ,teamNameEq(condition.getTeamName())
                         ,ageGoeEq(condition.getAgeGoe())
-                        ,ageLoeEq(condition.getAgeLoe()))
+                        ,ageLoeEq(condition.getAgeLoe())
+                        ,hits != null ? hits.predicate() : null)
                 .fetch();
+        return hits != null ? hits.rank(result) : result;
     }
 
 
@@ -67,19 +117,48 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom  {
 
     }
     private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName)? team.name.eq(teamName) : null;
+        return MemberSearchPredicates.teamNameEq(teamName); //team_id 인덱스를 타도록 서브쿼리
+    }
+
+    private BooleanExpression usernameEq(MemberSearchCondition condition) {
+        return MemberSearchPredicates.username(condition); //일치 + 앞부분 검색, ignoreCase 면 username_lower 컬럼
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
+    //전문검색(q)은 호출마다 한번만 (컨텐츠/카운트 쿼리가 같은 매칭 결과를 쓰도록)
+    private FullTextHits fullTextHits(MemberSearchCondition condition) {
+        return hasText(condition.getQ()) ? memberFullTextSearch.find(condition.getQ()) : null;
+    }
+
+    //전문검색(q) 매칭 회원만
+    private BooleanExpression fullTextEq(FullTextHits hits) {
+        return hits != null ? hits.predicate() : null;
+    }
+
+    //q 가 있으면 페이징/슬라이스도 점수순(like 검색이면 member.id 순)으로 잘라야 페이지끼리 겹치거나 빠지지 않는다.
+    private OrderSpecifier<?>[] fullTextOrder(FullTextHits hits) {
+        return hits != null ? hits.orderBy() : new OrderSpecifier<?>[0];
+    }
+
+    private BooleanExpression memberIdGt(Long lastMemberId) {
+        return lastMemberId != null ? member.id.gt(lastMemberId) : null;
     }
 
 
     // Paging Query---------------------------
 
     @Override //쉽거나 데이터가 적을때는이런식으로 하자.
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) { //몇페이지 조회할지 알려주는 매개변수
+        MemberColumnarStore columnar = memberColumnarEngine.storeFor(condition);
+        if (columnar != null && pageable.getSort().isUnsorted()) { //스냅샷은 id 순서만
+            return new PageImpl<>(columnar.fetch(condition, pageable.getOffset(), pageable.getPageSize()),
+                    pageable, columnar.count(condition));
+        }
+        return searchResultCache.getPage(condition.normalized(), pageable, () -> fetchPageSimple(condition, pageable));
+    }
 
+    private Page<MemberTeamDto> fetchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+          FullTextHits hits = fullTextHits(condition);
           QueryResults<MemberTeamDto> results = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId")
@@ -91,10 +170,12 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom  {
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
-                        usernameEq(condition.getUsername())
+                        usernameEq(condition)
                         , teamNameEq(condition.getTeamName())
                         , ageGoeEq(condition.getAgeGoe())
-                        , ageLoeEq(condition.getAgeLoe()))
+                        , ageLoeEq(condition.getAgeLoe())
+                        , fullTextEq(hits))
+                .orderBy(fullTextOrder(hits))
                 .offset(pageable.getOffset()) //오프셋 리미트 설정해줌
                 .limit(pageable.getPageSize())
                 .fetchResults();// 꼭 results 로 해야함.
@@ -108,10 +189,15 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom  {
 
     //복잡한구현 두개 따로 하는경우 -> 카운트 쿼리가 컨텐츠 쿼리보다 쉬울때. 복잡한 쿼리 두방을 날리기보단 한개는 쉽게날리면 성능 최적화 시킬수있음
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return searchResultCache.getPage(condition.normalized(), pageable, () -> fetchPageComplex(condition, pageable));
+    }
+
+    private Page<MemberTeamDto> fetchPageComplex(MemberSearchCondition condition, Pageable pageable) {
 
-        List<MemberTeamDto> content = getMemberTeamDtos(condition, pageable);
           // 예를 들어 카운트 먼저날리고 없으면 안날릴때 와 같이 최적화함. 왠만하면 카운터 최적화하자 데이터 많을때
+        FullTextHits hits = fullTextHits(condition);
         JPAQuery<MemberTeamDto> countQuery = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId")
@@ -123,21 +209,102 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom  {
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
-                        usernameEq(condition.getUsername())
+                        usernameEq(condition)
                         , teamNameEq(condition.getTeamName())
                         , ageGoeEq(condition.getAgeGoe())
-                        , ageLoeEq(condition.getAgeLoe()));
+                        , ageLoeEq(condition.getAgeLoe())
+                        , fullTextEq(hits));
 
         //카운트 쿼리 최적화 -> 마지막 페이지 혹은 첫번째 페이지에 페이징 수보다 컨텐츠가 적을때만 날아가도록 최적화 시킴.
-        return PageableExecutionUtils.getPage(content,pageable,countQuery::fetchCount);
+        //같은 조건으로 페이지를 넘길때는 캐시된 카운트를 재사용
+        //parallel-count 가 켜져있으면 카운트는 별도 커넥션에서 컨텐츠 쿼리와 동시에 돈다. (PageCountExecutor)
+        MemberColumnarStore columnar = memberColumnarEngine.storeFor(condition); //카운트는 스냅샷이 있으면 거기서
+        if (columnar != null) {
+            return PageableExecutionUtils.getPage(getMemberTeamDtos(condition, hits, pageable), pageable,
+                    () -> columnar.count(condition));
+        }
+        return pageCountExecutor.getPage(pageable,
+                () -> getMemberTeamDtos(condition, hits, pageable),
+                () -> searchCountCache.getCount(Arrays.asList("member.searchPageComplex", condition.normalized()), countQuery::fetchCount));
         //return new PageImpl<>(content,pageable,total);
 
     }
 
+    //카운트가 필요없을때 (무한스크롤) -> limit + 1 건을 조회해서 다음 페이지가 있는지만 확인. 카운트 쿼리 안날림
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        FullTextHits hits = fullTextHits(condition);
+        List<MemberTeamDto> content = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId")
+                        , member.username
+                        , member.age
+                        , team.id.as("teamId")
+                        , team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition)
+                        , teamNameEq(condition.getTeamName())
+                        , ageGoeEq(condition.getAgeGoe())
+                        , ageLoeEq(condition.getAgeLoe())
+                        , fullTextEq(hits))
+                .orderBy(fullTextOrder(hits))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1)
+                .fetch();
+
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content.remove(pageable.getPageSize());
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * 키셋(seek) 페이징 - offset 대신 마지막으로 받은 member.id 다음부터 size 만큼 조회
+     * 몇번째 페이지든 PK 인덱스로 바로 찾아가므로 뒤쪽 페이지도 첫페이지와 비용이 같다.
+     * size + 1 건을 조회해서 다음 페이지 존재 여부를 판단 (카운트 쿼리 없음)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Long lastMemberId, int size) {
+        Assert.isTrue(size > 0, "size must be positive"); //0 이면 PageRequest.of 에서, 음수면 limit 에서 깨진다
+        FullTextHits hits = fullTextHits(condition);
+        List<MemberTeamDto> content = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId")
+                        , member.username
+                        , member.age
+                        , team.id.as("teamId")
+                        , team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        memberIdGt(lastMemberId)
+                        , usernameEq(condition)
+                        , teamNameEq(condition.getTeamName())
+                        , ageGoeEq(condition.getAgeGoe())
+                        , ageLoeEq(condition.getAgeLoe())
+                        , fullTextEq(hits))
+                .orderBy(member.id.asc())
+                .limit(size + 1)
+                .fetch();
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content.remove(size);
+        }
+        return new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
+    }
+
     //이런식으로 리팩토링해서써도된다.
 
 
-    private List<MemberTeamDto> getMemberTeamDtos(MemberSearchCondition condition, Pageable pageable) {
+    private List<MemberTeamDto> getMemberTeamDtos(MemberSearchCondition condition, FullTextHits hits, Pageable pageable) {
         List<MemberTeamDto> content = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId")
@@ -149,10 +316,12 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom  {
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
-                        usernameEq(condition.getUsername())
+                        usernameEq(condition)
                         , teamNameEq(condition.getTeamName())
                         , ageGoeEq(condition.getAgeGoe())
-                        , ageLoeEq(condition.getAgeLoe()))
+                        , ageLoeEq(condition.getAgeLoe())
+                        , fullTextEq(hits))
+                .orderBy(fullTextOrder(hits))
                 .offset(pageable.getOffset()) //오프셋 리미트 설정해줌
                 .limit(pageable.getPageSize())
                 .fetch();// 꼭 results 로 해야함.
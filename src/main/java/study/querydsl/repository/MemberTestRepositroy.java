@@ -2,14 +2,21 @@ package study.querydsl.repository;
 
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUpdateClause;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
 import study.querydsl.Entitiy.Member;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.support.BulkProgressListener;
+import study.querydsl.repository.support.MemberSearchPredicates;
 import study.querydsl.repository.support.QueryDsl4RepositorySupport;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.springframework.util.StringUtils.hasText;
@@ -19,24 +26,27 @@ import static study.querydsl.Entitiy.QTeam.team;
 @Repository
 public class MemberTestRepositroy extends QueryDsl4RepositorySupport {
     public MemberTestRepositroy() {
-        super(Member.class);
+        super(Member.class, true); //조회는 모두 읽기전용 (readOnly 트랜잭션에서 dirty checking 스냅샷 없음)
     }
 
+    @Transactional(readOnly = true)
     public List<Member> basicSelet() {
         return select(member)
                 .from(member)
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> basicSelectFrom() {
         return selectFrom(member)
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable) {
         JPAQuery<Member> query = selectFrom(member)
                 .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
+                .where(usernameEq(condition),
                         teamNameEq(condition.getTeamName()),
                         ageGoeEq(condition.getAgeGoe()),
                         ageLoeEq(condition.getAgeLoe())
@@ -48,12 +58,13 @@ public class MemberTestRepositroy extends QueryDsl4RepositorySupport {
         return PageableExecutionUtils.getPage(content,pageable,query::fetchCount);
     }
 
+    @Transactional(readOnly = true)
     public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable) {
 
-        return applyPagination(pageable,query ->
+        return applyPagination(pageable,countKey(condition),query ->
                 query.selectFrom(member)
                      .leftJoin(member.team, team)
-                     .where(usernameEq(condition.getUsername()),
+                     .where(usernameEq(condition),
                             teamNameEq(condition.getTeamName()),
                             ageGoeEq(condition.getAgeGoe()),
                             ageLoeEq(condition.getAgeLoe())));
@@ -62,13 +73,14 @@ public class MemberTestRepositroy extends QueryDsl4RepositorySupport {
 
 
 
+    @Transactional(readOnly = true)
     public Page<Member> applyPagination2(MemberSearchCondition condition, Pageable pageable) {
 
-        return applyPagination(pageable
+        return applyPagination(pageable,countKey(condition)
                         ,contentQuery -> contentQuery
                         .selectFrom(member)
                         .leftJoin(member.team, team)
-                        .where(usernameEq(condition.getUsername()),
+                        .where(usernameEq(condition),
                                 teamNameEq(condition.getTeamName()),
                                 ageGoeEq(condition.getAgeGoe()),
                                 ageLoeEq(condition.getAgeLoe())
@@ -77,7 +89,7 @@ public class MemberTestRepositroy extends QueryDsl4RepositorySupport {
                         .select(member.id)
                         .from(member)
                         .leftJoin(member.team, team)
-                        .where(usernameEq(condition.getUsername()),
+                        .where(usernameEq(condition),
                                 teamNameEq(condition.getTeamName()),
                                 ageGoeEq(condition.getAgeGoe()),
                                 ageLoeEq(condition.getAgeLoe()))
@@ -86,6 +98,79 @@ public class MemberTestRepositroy extends QueryDsl4RepositorySupport {
     }
 
 
+    @Transactional(readOnly = true)
+    public Slice<Member> applySlice(MemberSearchCondition condition, Pageable pageable) {
+
+        return applySlice(pageable,query ->
+                query.selectFrom(member)
+                     .leftJoin(member.team, team)
+                     .where(usernameEq(condition),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoeEq(condition.getAgeGoe()),
+                            ageLoeEq(condition.getAgeLoe())));
+    }
+
+
+    //벌크 연산 - 나이가 ageLt 미만인 회원 나이를 amount 만큼 더한다. (빼기는 음수)
+    @Transactional
+    public long bulkAddAge(int ageLt, int amount) {
+        return executeBulk(query -> query
+                .update(member)
+                .set(member.age, member.age.add(amount))
+                .where(member.age.lt(ageLt)));
+    }
+
+    @Transactional
+    public long bulkDeleteByAgeGt(int ageGt) {
+        return executeBulk(query -> query
+                .delete(member)
+                .where(member.age.gt(ageGt)));
+    }
+
+    //나눠서 실행하는 벌크 연산 - 청크(id 범위)마다 커밋하므로 트랜잭션 밖에서 부른다. 큰 테이블을 오래 잠그지 않음
+    public long bulkAddAgeByTeamName(String teamName, int amount, int chunkSize, BulkProgressListener listener) {
+        Assert.hasText(teamName, "teamName must not be empty");
+        return updateInChunks(MemberSearchPredicates.teamNameEq(teamName),
+                update -> update.set(member.age, member.age.add(amount)),
+                chunkSize, listener);
+    }
+
+    //벌크 update 는 setUsername/엔티티 콜백을 거치지 않으므로 username_lower 도 같이 바꿔야 대소문자 무시 검색이 맞는다
+    public long bulkRenameByTeamName(String teamName, String username, int chunkSize, BulkProgressListener listener) {
+        Assert.hasText(teamName, "teamName must not be empty");
+        return updateInChunks(MemberSearchPredicates.teamNameEq(teamName),
+                update -> setUsername(update, username),
+                chunkSize, listener);
+    }
+
+    /**
+     * 벌크 update 에서 username 을 바꿀때는 이걸로 - username_lower 를 같은 값의 소문자로 같이 set 한다.
+     */
+    public static JPAUpdateClause setUsername(JPAUpdateClause update, String username) {
+        return update
+                .set(member.username, username)
+                .set(member.usernameLower, Member.lower(username));
+    }
+
+    public long bulkDeleteByAgeLt(int ageLt, int chunkSize, BulkProgressListener listener) {
+        return bulkDeleteByAgeLt(ageLt, null, chunkSize, listener);
+    }
+
+    //usernamePrefix 가 있으면 그 이름으로 시작하는 회원만
+    public long bulkDeleteByAgeLt(int ageLt, String usernamePrefix, int chunkSize, BulkProgressListener listener) {
+        return deleteInChunks(member.age.lt(ageLt).and(usernamePrefixEq(usernamePrefix)), chunkSize, listener);
+    }
+
+    //q 를 안보는 카운트라 MemberRepositoryImpl 카운트와 키가 겹치지 않게 구분 (applyPagination, applyPagination2 는 같은 카운트)
+    private static Object countKey(MemberSearchCondition condition) {
+        return Arrays.asList("memberTest.applyPagination", condition.normalized());
+    }
+
+    private BooleanExpression usernamePrefixEq(String usernamePrefix) {
+        return hasText(usernamePrefix) ? member.username.startsWith(usernamePrefix) : null;
+    }
+
+
     private BooleanExpression ageLoeEq(Integer ageLoe) {
         return ageLoe!=null ? member.age.loe(ageLoe) : null;
     }
@@ -95,11 +180,11 @@ public class MemberTestRepositroy extends QueryDsl4RepositorySupport {
 
     }
     private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName)? team.name.eq(teamName) : null;
+        return MemberSearchPredicates.teamNameEq(teamName); //team_id 인덱스를 타도록 서브쿼리
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
+    private BooleanExpression usernameEq(MemberSearchCondition condition) {
+        return MemberSearchPredicates.username(condition); //일치 + 앞부분 검색, ignoreCase 면 username_lower 컬럼
     }
 
 }
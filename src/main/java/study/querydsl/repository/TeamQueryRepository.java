@@ -0,0 +1,97 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.dto.QTeamMembersDto;
+import study.querydsl.dto.TeamMemberDto;
+import study.querydsl.dto.TeamMembersDto;
+import study.querydsl.repository.support.QueryDsl4RepositorySupport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static study.querydsl.Entitiy.QTeam.team;
+
+/**
+ * 팀 + 소속 회원 조회
+ * 컬렉션(Team.Members)을 페치조인하면 row 가 회원수만큼 늘어나서 페이징이 깨지고, 지연로딩하면 팀마다 쿼리가 나간다(N+1).
+ * -> 팀만 페이징해서 가져온 뒤 그 페이지 팀들의 회원을 IN 쿼리 한번으로 가져와서 메모리에서 붙인다.
+ * 페이지당 쿼리는 팀 수와 상관없이 최대 3번 (팀, 카운트, 회원)
+ * 팀마다 회원은 id 순으로 maxMembers 명까지만 붙이고, 더 있으면 moreMembers=true (나머지는 회원 검색 API 로)
+ */
+@Repository
+public class TeamQueryRepository extends QueryDsl4RepositorySupport {
+
+    private static final String TEAM_COUNT_KEY = "teamCount"; //팀 카운트는 조건이 없으므로 키 하나
+
+    //팀별로 id 순 번호를 매겨서 앞에서 limit 명만 (JPQL 에는 윈도우 함수가 없어서 네이티브)
+    private static final String MEMBERS_PER_TEAM_SQL = "select member_id, username, age, team_id from ("
+            + " select m.member_id, m.username, m.age, m.team_id,"
+            + " row_number() over (partition by m.team_id order by m.member_id) rn"
+            + " from member m where m.team_id in (:teamIds)"
+            + ") ranked where rn <= :limit order by team_id, member_id";
+
+    private final int maxMembers;
+
+    public TeamQueryRepository(@Value("${member.team.max-members:20}") int maxMembers) {
+        super(Team.class);
+        this.maxMembers = maxMembers;
+    }
+
+    public Page<TeamMembersDto> findTeamsWithMembers(Pageable pageable) {
+        return findTeamsWithMembers(pageable, maxMembers);
+    }
+
+    public Page<TeamMembersDto> findTeamsWithMembers(Pageable pageable, int maxMembers) {
+        Page<TeamMembersDto> teams = applyPagination(pageable, TEAM_COUNT_KEY
+                , contentQuery -> {
+                    JPAQuery<TeamMembersDto> query = contentQuery
+                            .select(new QTeamMembersDto(team.id, team.name))
+                            .from(team);
+                    return pageable.getSort().isSorted() ? query : query.orderBy(team.id.asc()); //정렬이 없으면 페이지가 흔들리지 않게 id 순
+                }
+                , countQuery -> countQuery
+                        .select(team.id)
+                        .from(team));
+
+        List<Long> teamIds = teams.getContent().stream()
+                .map(TeamMembersDto::getTeamId)
+                .collect(Collectors.toList());
+        if (teamIds.isEmpty()) {
+            return teams;
+        }
+
+        Map<Long, List<TeamMemberDto>> membersByTeam = findMembers(teamIds, maxMembers + 1); //한명 더 읽어서 더 있는지 본다
+
+        for (TeamMembersDto teamMembers : teams) {
+            List<TeamMemberDto> members = membersByTeam.getOrDefault(teamMembers.getTeamId(), Collections.emptyList());
+            teamMembers.setMoreMembers(members.size() > maxMembers);
+            teamMembers.setMembers(members.size() > maxMembers ? members.subList(0, maxMembers) : members);
+        }
+        return teams;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, List<TeamMemberDto>> findMembers(List<Long> teamIds, int limit) {
+        List<Object[]> rows = getEntityManager().createNativeQuery(MEMBERS_PER_TEAM_SQL)
+                .setParameter("teamIds", teamIds)
+                .setParameter("limit", limit)
+                .getResultList();
+
+        Map<Long, List<TeamMemberDto>> membersByTeam = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            Long teamId = ((Number) row[3]).longValue();
+            membersByTeam.computeIfAbsent(teamId, id -> new ArrayList<>())
+                    .add(new TeamMemberDto(((Number) row[0]).longValue(), (String) row[1], ((Number) row[2]).intValue(), teamId));
+        }
+        return membersByTeam;
+    }
+}
@@ -0,0 +1,210 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entitiy.TeamStats;
+import study.querydsl.dto.QTeamStatsDto;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.repository.support.TeamStatsChange;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static study.querydsl.Entitiy.QTeam.team;
+import static study.querydsl.Entitiy.QTeamStats.teamStats;
+
+/**
+ * 팀별 집계 요약 테이블(team_stats)
+ * 조회는 팀 수만큼만 읽는다. (회원 전체를 groupBy 하지 않음)
+ * 갱신은 TeamStatsEventListener 가 커밋 직전에 변화량으로, 전체 재계산은 rebuild (TeamStatsRebuildJob, POST /v1/teams/stats/rebuild)
+ *
+ * 팀 행을 select for update 로 잠그므로 같은 팀의 회원 쓰기는 커밋 직전부터 커밋까지 팀 단위로 줄을 선다. (다른 팀끼리는 영향 없음)
+ * 행이 아직 없는 팀은 먼저 별도 트랜잭션에서 만들어두고 잠근다. (동시에 처음 insert 하다 PK 충돌로 회원 쓰기까지 롤백되지 않게)
+ */
+@Slf4j
+@Repository
+public class TeamStatsRepository {
+
+    //팀 기준 left join 이라 회원이 없는 팀도 0 건으로 나온다.
+    private static final String AGGREGATE_QUERY =
+            "select t.id, count(m.id), sum(m.age), min(m.age), max(m.age) from Team t left join t.Members m";
+
+    //행이 없는 팀의 행을 지금 커밋된 회원으로 집계해서 만든다. 다른 트랜잭션이 먼저 만들었으면 아무것도 안함
+    private static final String INSERT_MISSING_SQL =
+            "insert into team_stats (team_id, member_count, age_sum, min_age, max_age)"
+                    + " select t.team_id, count(m.member_id), coalesce(sum(m.age), 0), min(m.age), max(m.age)"
+                    + " from team t left join member m on m.team_id = t.team_id"
+                    + " where t.team_id = ?1 and not exists (select 1 from team_stats s where s.team_id = t.team_id)"
+                    + " group by t.team_id";
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate insertTransaction;
+
+    public TeamStatsRepository(EntityManager em, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.insertTransaction = new TransactionTemplate(transactionManager);
+        this.insertTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public List<TeamStatsDto> findAll() {
+        return queryFactory
+                .select(new QTeamStatsDto(
+                        teamStats.teamId
+                        , team.name
+                        , teamStats.memberCount
+                        , teamStats.ageSum
+                        , teamStats.minAge
+                        , teamStats.maxAge))
+                .from(teamStats)
+                .join(team).on(team.id.eq(teamStats.teamId))
+                .orderBy(team.id.asc())
+                .fetch();
+    }
+
+    /**
+     * 변화량 반영 - 팀 id 순으로 행 잠금(select for update)을 잡아서 동시에 커밋하는 트랜잭션끼리 값을 덮어쓰지 않게 한다.
+     * changes 는 팀 id 순서(TreeMap)여야 트랜잭션끼리 서로 반대 순서로 잠가서 데드락나는걸 피할수 있음
+     */
+    public void apply(Map<Long, TeamStatsChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        //이번 트랜잭션에서 만든 팀은 다른 트랜잭션이 볼수 없으므로 아래에서 바로 만든다
+        Set<Long> missing = missingStats(changes.keySet());
+        insertMissing(missing.stream()
+                .filter(teamId -> !changes.get(teamId).isTeamInserted())
+                .collect(Collectors.toList()));
+        Map<Long, TeamStats> stats = lockStats(changes.keySet());
+        List<Long> recompute = new ArrayList<>();
+
+        for (Map.Entry<Long, TeamStatsChange> entry : changes.entrySet()) {
+            Long teamId = entry.getKey();
+            TeamStatsChange change = entry.getValue();
+            TeamStats teamStat = stats.get(teamId);
+
+            if (change.isTeamDeleted()) {
+                if (teamStat != null) {
+                    em.remove(teamStat);
+                }
+                continue;
+            }
+            boolean created = missing.contains(teamId); //미리 만든 행도 이번 변경 전 값이라 다시 집계해야함
+            if (teamStat == null) {
+                teamStat = new TeamStats(teamId);
+                em.persist(teamStat);
+                stats.put(teamId, teamStat);
+            }
+            if (change.needsRecompute(teamStat, created)) {
+                recompute.add(teamId);
+            } else {
+                teamStat.add(change.getCountDelta(), change.getSumDelta(), change.getAddedMin(), change.getAddedMax());
+            }
+        }
+
+        if (!recompute.isEmpty()) {
+            resetFromMembers(em.createQuery(AGGREGATE_QUERY + " where t.id in :teamIds group by t.id", Object[].class)
+                    .setParameter("teamIds", recompute)
+                    .getResultList(), stats);
+        }
+    }
+
+    /**
+     * 전체 재계산 - 모든 팀을 회원 테이블에서 다시 집계하고 없어진 팀의 행은 지운다.
+     */
+    @Transactional
+    public int rebuild() {
+        insertMissing(em.createQuery("select t.id from Team t"
+                        + " where not exists (select s.teamId from TeamStats s where s.teamId = t.id)", Long.class)
+                .getResultList());
+        Map<Long, TeamStats> stats = new HashMap<>();
+        for (TeamStats teamStat : em.createQuery("select s from TeamStats s order by s.teamId", TeamStats.class) //apply 와 같은 순서로 잠금
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList()) {
+            stats.put(teamStat.getTeamId(), teamStat);
+        }
+
+        List<Object[]> rows = em.createQuery(AGGREGATE_QUERY + " group by t.id", Object[].class)
+                .getResultList();
+        for (Object[] row : rows) {
+            Long teamId = (Long) row[0];
+            if (!stats.containsKey(teamId)) {
+                TeamStats teamStat = new TeamStats(teamId);
+                em.persist(teamStat);
+                stats.put(teamId, teamStat);
+            }
+        }
+        resetFromMembers(rows, stats);
+
+        em.createQuery("delete from TeamStats s where s.teamId not in (select t.id from Team t)")
+                .executeUpdate();
+        return rows.size();
+    }
+
+    private Set<Long> missingStats(Collection<Long> teamIds) {
+        Set<Long> missing = new HashSet<>(teamIds);
+        missing.removeAll(queryFactory
+                .select(teamStats.teamId)
+                .from(teamStats)
+                .where(teamStats.teamId.in(teamIds))
+                .fetch());
+        return missing;
+    }
+
+    //팀마다 따로 커밋 - 다른 트랜잭션과 동시에 만들다 PK 충돌이 나도 그 팀만 건너뛰면 된다 (이미 있으므로)
+    private void insertMissing(List<Long> teamIds) {
+        for (Long teamId : teamIds) {
+            try {
+                insertTransaction.executeWithoutResult(status -> em.createNativeQuery(INSERT_MISSING_SQL)
+                        .setParameter(1, teamId)
+                        .executeUpdate());
+            } catch (PersistenceException | DataAccessException | TransactionException e) {
+                log.debug("team_stats row for team {} was created concurrently", teamId, e);
+            }
+        }
+    }
+
+    private Map<Long, TeamStats> lockStats(Collection<Long> teamIds) {
+        Map<Long, TeamStats> stats = new HashMap<>();
+        for (TeamStats teamStat : queryFactory
+                .selectFrom(teamStats)
+                .where(teamStats.teamId.in(teamIds))
+                .orderBy(teamStats.teamId.asc())
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .fetch()) {
+            stats.put(teamStat.getTeamId(), teamStat);
+        }
+        return stats;
+    }
+
+    private static void resetFromMembers(List<Object[]> rows, Map<Long, TeamStats> stats) {
+        for (Object[] row : rows) {
+            TeamStats teamStat = stats.get((Long) row[0]);
+            if (teamStat == null) {
+                continue;
+            }
+            teamStat.reset(
+                    ((Number) row[1]).longValue(),
+                    row[2] == null ? 0 : ((Number) row[2]).longValue(),
+                    row[3] == null ? null : ((Number) row[3]).intValue(),
+                    row[4] == null ? null : ((Number) row[4]).intValue());
+        }
+    }
+}
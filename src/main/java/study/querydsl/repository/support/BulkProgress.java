@@ -0,0 +1,36 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 나눠서 실행하는 벌크 update/delete 의 진행상황 - 청크(id 범위) 하나가 커밋될때마다 {@link BulkProgressListener} 로 넘어온다.
+ * 청크 수는 시작할때 센 행수로 계산한 값이라 진행중에 행이 바뀌면 달라질수 있다. 마지막 청크인지는 {@link #isLast()}
+ */
+@Getter
+@ToString
+public class BulkProgress {
+
+    private final Class<?> domainClass;
+    private final long chunk;         //1 부터
+    private final long chunks;        //시작할때 대상 행수로 계산한 전체 청크 수
+    private final long fromId;
+    private final long toId;
+    private final long affected;      //이번 청크
+    private final long totalAffected; //지금까지
+    private final boolean last;
+    private final long elapsedMillis;
+
+    public BulkProgress(Class<?> domainClass, long chunk, long chunks, long fromId, long toId,
+                        long affected, long totalAffected, boolean last, long elapsedMillis) {
+        this.domainClass = domainClass;
+        this.chunk = chunk;
+        this.chunks = chunks;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.affected = affected;
+        this.totalAffected = totalAffected;
+        this.last = last;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,10 @@
+package study.querydsl.repository.support;
+
+@FunctionalInterface
+public interface BulkProgressListener {
+
+    BulkProgressListener NONE = progress -> {
+    };
+
+    void onChunk(BulkProgress progress);
+}
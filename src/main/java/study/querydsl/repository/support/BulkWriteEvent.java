@@ -0,0 +1,26 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+
+/**
+ * 벌크 update/delete 가 실행됐을때 (엔티티 이벤트가 발생하지 않으므로 요약 테이블 등은 이걸 보고 다시 계산해야함)
+ * 실행한 트랜잭션 안에서 동기로 발행된다.
+ * 나눠서 실행하다 중간에 실패하면 커밋된 청크의 행수만으로 발행되고 completed 가 false (where 에 맞는 행 중 일부만 바뀜)
+ */
+@Getter
+public class BulkWriteEvent {
+
+    private final Class<?> domainClass;
+    private final long affected;
+    private final boolean completed;
+
+    public BulkWriteEvent(Class<?> domainClass, long affected) {
+        this(domainClass, affected, true);
+    }
+
+    public BulkWriteEvent(Class<?> domainClass, long affected, boolean completed) {
+        this.domainClass = domainClass;
+        this.affected = affected;
+        this.completed = completed;
+    }
+}
@@ -0,0 +1,108 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static study.querydsl.Entitiy.QMember.member;
+
+/**
+ * 전문검색(q) 결과 - 매칭된 회원 id, 팀 id 별 점수
+ * 다른 검색조건과 같이 쓸수 있게 member.id in (...) or member.team.id in (...) 조건으로 넘겨주고, 목록 결과는 점수순으로 정렬해준다.
+ * 페이징/슬라이스는 DB 에서 잘라야 하므로 같은 점수순을 order by case ... end 로 넘겨준다. ({@link #orderBy()})
+ */
+public class FullTextHits {
+
+    private final Map<Long, Float> memberScores;
+    private final Map<Long, Float> teamScores;
+    private final BooleanExpression predicate;
+    private final boolean truncated;
+
+    FullTextHits(Map<Long, Float> memberScores, Map<Long, Float> teamScores, boolean truncated) {
+        this.memberScores = memberScores;
+        this.teamScores = teamScores;
+        this.truncated = truncated;
+        if (memberScores.isEmpty() && teamScores.isEmpty()) {
+            this.predicate = member.id.isNull(); //매칭이 없으면 결과도 없음 (id 는 null 일수 없다)
+        } else if (teamScores.isEmpty()) {
+            this.predicate = member.id.in(memberScores.keySet());
+        } else if (memberScores.isEmpty()) {
+            this.predicate = member.team.id.in(teamScores.keySet());
+        } else {
+            this.predicate = member.id.in(memberScores.keySet()).or(member.team.id.in(teamScores.keySet()));
+        }
+    }
+
+    //전문검색이 꺼져있을때 - 점수 없이 조건만
+    FullTextHits(BooleanExpression predicate) {
+        this.memberScores = null;
+        this.teamScores = null;
+        this.predicate = predicate;
+        this.truncated = false;
+    }
+
+    public BooleanExpression predicate() {
+        return predicate;
+    }
+
+    public boolean isRanked() {
+        return memberScores != null;
+    }
+
+    //max-hits 에 걸려서 점수 낮은 매칭이 빠졌는지 (결과/카운트가 전체 매칭보다 작을수 있음)
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * 페이징/슬라이스용 정렬 - rank() 와 같은 순서 (점수 높은순, 같으면 member.id)
+     * 점수별로 묶어서 높은 점수부터 when 을 걸면 처음 맞는 when 이 회원 점수와 팀 점수 중 큰쪽이 된다.
+     * 점수가 없으면(like 검색) member.id 순
+     */
+    public OrderSpecifier<?>[] orderBy() {
+        if (!isRanked() || (memberScores.isEmpty() && teamScores.isEmpty())) {
+            return new OrderSpecifier<?>[]{member.id.asc()};
+        }
+        TreeMap<Float, BooleanBuilder> byScore = new TreeMap<>(Comparator.reverseOrder());
+        memberScores.forEach((id, score) -> byScore.computeIfAbsent(score, s -> new BooleanBuilder()).or(member.id.eq(id)));
+        teamScores.forEach((id, score) -> byScore.computeIfAbsent(score, s -> new BooleanBuilder()).or(member.team.id.eq(id)));
+
+        CaseBuilder.Cases<Integer, NumberExpression<Integer>> cases = null;
+        int rank = 0;
+        for (BooleanBuilder matches : byScore.values()) {
+            NumberExpression<Integer> literal = Expressions.numberTemplate(Integer.class, String.valueOf(rank++)); //파라미터가 아니라 상수로
+            cases = cases == null ? new CaseBuilder().when(matches).then(literal) : cases.when(matches).then(literal);
+        }
+        NumberExpression<Integer> scoreRank = cases.otherwise(Expressions.numberTemplate(Integer.class, String.valueOf(rank)));
+        return new OrderSpecifier<?>[]{scoreRank.asc(), member.id.asc()};
+    }
+
+    public List<MemberTeamDto> rank(List<MemberTeamDto> result) {
+        if (!isRanked()) {
+            return result;
+        }
+        List<MemberTeamDto> ranked = new ArrayList<>(result);
+        ranked.sort(Comparator.comparing(this::score).reversed()
+                .thenComparing(MemberTeamDto::getMemberId));
+        return ranked;
+    }
+
+    //회원 자신의 점수와 팀 점수 중 큰쪽
+    float score(MemberTeamDto dto) {
+        float score = memberScores.getOrDefault(dto.getMemberId(), 0f);
+        if (dto.getTeamId() != null) {
+            score = Math.max(score, teamScores.getOrDefault(dto.getTeamId(), 0f));
+        }
+        return score;
+    }
+}
@@ -0,0 +1,343 @@
+package study.querydsl.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.dto.MemberSearchCondition;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 회원 검색을 H2 대신 메모리의 컬럼형 스냅샷({@link MemberColumnarStore})으로 처리 (member.columnar.enabled=true 일때만)
+ * - 시작할때 별도 스레드에서 member/team 을 읽어 스냅샷을 만든다. 다 만들어지기 전(워밍중)에는 DB 로 조회
+ * - 하이버네이트 insert/update/delete 이벤트를 트랜잭션별로 모아두었다가 커밋된 뒤(afterCommit)에 unapplied 에 쌓는다.
+ *   스냅샷 사본은 다음 검색때 쌓인 변경을 한번에 반영해서 만든다. (쓰기 트랜잭션마다 사본을 만들지 않음, 커밋 뒤 검색에는 보임)
+ * - 사본의 delta 가 compactThreshold 를 넘으면 별도 스레드에서 컬럼을 다시 만든다. 그동안은 스냅샷 + delta 로 검색하고
+ *   다 만들어지면 그 사이 반영된 변경을 다시 적용해서 바꿔 끼운다. (요청 스레드는 정렬을 기다리지 않음)
+ * - 벌크 update/delete({@link BulkWriteEvent}), 이벤트가 없는 JDBC 쓰기 뒤에는 {@link #rebuild()} 로 다시 읽는다. (그동안은 DB)
+ *
+ * 커밋된 데이터만 들고 있으므로 읽기전용 트랜잭션이거나 트랜잭션 밖에서만 쓴다. (쓰기 트랜잭션은 자기 변경을 봐야함)
+ * 대소문자 무시 검색, 전문검색(q), 정렬이 있는 페이징은 DB 로
+ */
+@Slf4j
+@Component
+public class MemberColumnarEngine implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory emf;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int compactThreshold;
+    private final ExecutorService warmer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "member-columnar-warmup");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "member-columnar-compact");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile MemberColumnarStore store; //null 이면 워밍중이거나 버려진 상태 (DB 로 조회)
+    private final MemberColumnarStore.Changes unapplied = new MemberColumnarStore.Changes(); // guarded by this - 커밋됐지만 스냅샷에 아직 반영안된 변경
+    private volatile boolean dirty; //unapplied 가 있음 - 검색할때 반영
+    private boolean warming; // guarded by this
+    private boolean compacting; // guarded by this
+    private final MemberColumnarStore.Changes appliedWhileCompacting = new MemberColumnarStore.Changes(); // guarded by this - 압축할 스냅샷을 뜬 뒤 반영된 변경
+    private long generation; // guarded by this - 다시 읽기 시작하면 증가, 이전에 시작한 로딩 결과는 버린다
+
+    public MemberColumnarEngine(EntityManagerFactory emf, JdbcTemplate jdbcTemplate,
+                                @Value("${member.columnar.enabled:false}") boolean enabled,
+                                @Value("${member.columnar.compact-threshold:10000}") int compactThreshold) {
+        this.emf = emf;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.compactThreshold = compactThreshold;
+    }
+
+    @PostConstruct
+    public void register() {
+        if (!enabled) {
+            return;
+        }
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        warmer.shutdownNow();
+        compactor.shutdownNow();
+    }
+
+    /**
+     * 스냅샷을 버리고 DB 에서 다시 읽는다. 다 읽을때까지는 DB 로 조회
+     */
+    public void rebuild() {
+        long loadGeneration;
+        synchronized (this) {
+            store = null;
+            warming = true;
+            clearUnapplied();
+            cancelCompaction();
+            loadGeneration = ++generation;
+        }
+        warmer.submit(() -> load(loadGeneration));
+    }
+
+    //반영할수 없는 쓰기가 있었을때 - rebuild() 전까지 DB 로 조회
+    private synchronized void invalidate() {
+        store = null;
+        warming = false;
+        clearUnapplied();
+        cancelCompaction();
+        generation++;
+    }
+
+    /**
+     * 이 조건을 메모리에서 처리할수 있으면 스냅샷, 아니면 null (DB 로 조회)
+     */
+    public MemberColumnarStore storeFor(MemberSearchCondition condition) {
+        MemberColumnarStore current = store;
+        if (current == null || !readable() || condition.isIgnoreCase() || hasText(condition.getQ())) {
+            return null;
+        }
+        return dirty ? applyUnapplied() : current;
+    }
+
+    public boolean isReady() {
+        return store != null;
+    }
+
+    private static boolean readable() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private void load(long loadGeneration) {
+        try {
+            long start = System.currentTimeMillis();
+            Map<Long, String> teamNames = new HashMap<>();
+            jdbcTemplate.query("select team_id, name from team",
+                    rs -> {
+                        teamNames.put(rs.getLong(1), rs.getString(2));
+                    });
+            List<MemberColumnarStore.Row> rows = new ArrayList<>();
+            jdbcTemplate.query("select member_id, username, age, team_id from member",
+                    rs -> {
+                        long teamId = rs.getLong(4);
+                        rows.add(new MemberColumnarStore.Row(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.wasNull() ? null : teamId));
+                    });
+            MemberColumnarStore loaded = MemberColumnarStore.of(rows, teamNames);
+
+            synchronized (this) {
+                if (loadGeneration != generation) {
+                    return;
+                }
+                //읽는 동안 커밋된 변경을 다시 적용 (id 별 마지막 상태라 이미 읽힌 변경이어도 결과가 같다)
+                store = loaded.with(unapplied);
+                clearUnapplied();
+                warming = false;
+                compactIfNeeded();
+            }
+            log.info("member columnar store loaded: {} members in {}ms", rows.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                if (loadGeneration == generation) {
+                    warming = false;
+                }
+            }
+            log.warn("member columnar store load failed, searches stay on the database", e);
+        }
+    }
+
+    //커밋된 변경은 쌓아만 둔다 - 변경 크기만큼만 락을 잡음
+    private synchronized void apply(MemberColumnarStore.Changes changes) {
+        if (store != null || warming) {
+            unapplied.addAll(changes);
+            dirty = store != null;
+        }
+    }
+
+    //그동안 커밋된 변경을 한번에 반영한 사본 (트랜잭션 여러개를 사본 하나로)
+    private synchronized MemberColumnarStore applyUnapplied() {
+        if (store != null && !unapplied.isEmpty()) {
+            store = store.with(unapplied);
+            if (compacting) {
+                appliedWhileCompacting.addAll(unapplied);
+            }
+            clearUnapplied();
+            compactIfNeeded();
+        }
+        return store;
+    }
+
+    //delta 가 커졌으면 지금 스냅샷을 압축 스레드에 넘긴다 (한번에 하나) - guarded by this
+    private void compactIfNeeded() {
+        if (compacting || store.deltaSize() <= compactThreshold) {
+            return;
+        }
+        compacting = true;
+        MemberColumnarStore snapshot = store;
+        long compactGeneration = generation;
+        compactor.submit(() -> compact(snapshot, compactGeneration));
+    }
+
+    private void compact(MemberColumnarStore snapshot, long compactGeneration) {
+        try {
+            long start = System.currentTimeMillis();
+            MemberColumnarStore compacted = snapshot.compact(); //락 밖에서 - 그동안 검색은 snapshot + delta
+
+            synchronized (this) {
+                if (compactGeneration != generation) { //그 사이 다시 읽기 시작했거나 버려짐
+                    return;
+                }
+                //스냅샷을 뜬 뒤에 반영된 변경을 다시 적용 (id 별 마지막 상태라 순서대로 합친것과 같다)
+                store = compacted.with(appliedWhileCompacting);
+                cancelCompaction();
+                compactIfNeeded();
+            }
+            log.debug("member columnar store compacted: {} members in {}ms", compacted.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                if (compactGeneration == generation) {
+                    cancelCompaction(); //delta 는 그대로 두고 다음 반영때 다시 시도
+                }
+            }
+            log.warn("member columnar store compaction failed, searches keep using the delta", e);
+        }
+    }
+
+    private void cancelCompaction() {
+        compacting = false;
+        appliedWhileCompacting.clear();
+    }
+
+    private void clearUnapplied() {
+        unapplied.clear();
+        dirty = false;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        onWrite(event.getEntity(), event.getId(), event.getPersister(), event.getState());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        onWrite(event.getEntity(), event.getId(), event.getPersister(), event.getState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            pending().changes.deleteMember((Long) event.getId());
+        } else if (event.getEntity() instanceof Team) {
+            pending().changes.deleteTeam((Long) event.getId());
+        }
+    }
+
+    private void onWrite(Object entity, Object id, EntityPersister persister, Object[] state) {
+        if (entity instanceof Member) {
+            pending().changes.putMember(new MemberColumnarStore.Row((Long) id,
+                    (String) state[persister.getEntityMetamodel().getPropertyIndex("username")],
+                    (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")],
+                    teamId(state[persister.getEntityMetamodel().getPropertyIndex("team")])));
+        } else if (entity instanceof Team) {
+            pending().changes.putTeam((Long) id, (String) state[persister.getEntityMetamodel().getPropertyIndex("name")]);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    @EventListener
+    public void onBulkWrite(BulkWriteEvent event) {
+        if (enabled && (event.getDomainClass() == Member.class || event.getDomainClass() == Team.class)) {
+            pending().rebuild = true;
+        }
+    }
+
+    private PendingChanges pending() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                if (synchronization instanceof PendingChanges) {
+                    return (PendingChanges) synchronization;
+                }
+            }
+            PendingChanges pending = new PendingChanges();
+            TransactionSynchronizationManager.registerSynchronization(pending);
+            return pending;
+        }
+        //스프링 트랜잭션 밖의 쓰기는 커밋 시점을 알수 없으므로 스냅샷을 버린다 (rebuild 로 다시 읽음)
+        log.warn("member/team write outside of a Spring transaction, columnar store is dropped until rebuild()");
+        invalidate();
+        return new PendingChanges(); //기록만 하고 버려짐
+    }
+
+    private static Long teamId(Object team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) { //프록시를 초기화하지 않고 id 만 꺼낸다
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+
+        private final MemberColumnarStore.Changes changes = new MemberColumnarStore.Changes();
+        private boolean rebuild;
+
+        @Override
+        public void afterCommit() {
+            if (rebuild) {
+                rebuild();
+            } else {
+                apply(changes);
+            }
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package study.querydsl.repository.support;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 회원 검색용 컬럼형 스냅샷 (불변) - {@link MemberColumnarEngine} 이 들고 있다.
+ * 행은 member id 순으로 정렬되어 있고 컬럼별 배열로 저장한다.
+ * - ids long[], ages int[], teamOrdinals int[] (팀 없으면 -1), usernameCodes int[] (정렬된 회원명 사전의 번호)
+ * - 회원명/팀은 값별 행 비트셋(posting list), 나이는 나이순으로 정렬한 행번호 배열로 범위를 찾는다.
+ * 조건별 비트셋을 and 해서 찾으므로 결과는 DB 조회(PK 순)와 같은 순서
+ *
+ * 커밋된 변경은 스냅샷을 다시 만들지 않고 delta(id -> 행, 삭제는 null)에 쌓고 base 의 해당 행은 hidden 으로 가린다.
+ * delta 가 커지면 {@link #compact()} 로 base + delta 를 새 스냅샷으로 만든다. (엔진이 별도 스레드에서 호출)
+ * 새 회원(insert)은 base 에 없으므로 hidden 은 base 행이 바뀔때만 복사하고, 팀 맵은 팀이 바뀔때만 복사한다.
+ */
+public final class MemberColumnarStore {
+
+    //base 컬럼
+    private final long[] ids;
+    private final int[] ages;
+    private final int[] teamOrdinals;
+    private final int[] usernameCodes;
+    private final String[] usernameDict;      //정렬됨 -> 앞부분 검색은 사전의 연속 구간
+    private final BitSet[] usernamePostings;
+    private final long[] teamOrdinalIds;
+    private final Map<Long, Integer> teamOrdinalById;
+    private final BitSet[] teamPostings;
+    private final int[] rowsByAge;            //나이순 행번호
+    private final int[] sortedAges;           //rowsByAge 순서의 나이
+
+    //커밋된 변경
+    private final BitSet hidden;
+    private final TreeMap<Long, Row> delta;
+    private final Map<Long, String> teamNames;
+    private final Map<String, Long> teamIdByName;
+
+    private MemberColumnarStore(List<Row> rows, Map<Long, String> teamNames) {
+        rows.sort((a, b) -> Long.compare(a.id, b.id));
+        int size = rows.size();
+        ids = new long[size];
+        ages = new int[size];
+        teamOrdinals = new int[size];
+        usernameCodes = new int[size];
+
+        TreeSet<String> usernames = new TreeSet<>();
+        for (Row row : rows) {
+            if (row.username != null) {
+                usernames.add(row.username);
+            }
+        }
+        usernameDict = usernames.toArray(new String[0]);
+        usernamePostings = new BitSet[usernameDict.length];
+
+        teamOrdinalById = new HashMap<>();
+        List<Long> teamIds = new ArrayList<>();
+        List<BitSet> postings = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            Row row = rows.get(i);
+            ids[i] = row.id;
+            ages[i] = row.age;
+            if (row.username != null) {
+                int code = Arrays.binarySearch(usernameDict, row.username);
+                usernameCodes[i] = code;
+                posting(usernamePostings, code).set(i);
+            } else {
+                usernameCodes[i] = -1;
+            }
+            if (row.teamId != null) {
+                Integer ordinal = teamOrdinalById.get(row.teamId);
+                if (ordinal == null) {
+                    ordinal = teamIds.size();
+                    teamOrdinalById.put(row.teamId, ordinal);
+                    teamIds.add(row.teamId);
+                    postings.add(new BitSet());
+                }
+                teamOrdinals[i] = ordinal;
+                postings.get(ordinal).set(i);
+            } else {
+                teamOrdinals[i] = -1;
+            }
+        }
+        teamOrdinalIds = teamIds.stream().mapToLong(Long::longValue).toArray();
+        teamPostings = postings.toArray(new BitSet[0]);
+
+        Integer[] byAge = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            byAge[i] = i;
+        }
+        Arrays.sort(byAge, (a, b) -> Integer.compare(ages[a], ages[b])); //안정 정렬 -> 같은 나이는 id 순
+        rowsByAge = new int[size];
+        sortedAges = new int[size];
+        for (int i = 0; i < size; i++) {
+            rowsByAge[i] = byAge[i];
+            sortedAges[i] = ages[byAge[i]];
+        }
+
+        this.hidden = new BitSet(size);
+        this.delta = new TreeMap<>();
+        this.teamNames = Collections.unmodifiableMap(new HashMap<>(teamNames));
+        this.teamIdByName = byName(this.teamNames);
+    }
+
+    //변경만 반영한 사본 (base 컬럼은 공유, 팀이 안바뀌었으면 팀 맵도 공유)
+    private MemberColumnarStore(MemberColumnarStore base, BitSet hidden, TreeMap<Long, Row> delta, Map<Long, String> teamNames) {
+        this.ids = base.ids;
+        this.ages = base.ages;
+        this.teamOrdinals = base.teamOrdinals;
+        this.usernameCodes = base.usernameCodes;
+        this.usernameDict = base.usernameDict;
+        this.usernamePostings = base.usernamePostings;
+        this.teamOrdinalIds = base.teamOrdinalIds;
+        this.teamOrdinalById = base.teamOrdinalById;
+        this.teamPostings = base.teamPostings;
+        this.rowsByAge = base.rowsByAge;
+        this.sortedAges = base.sortedAges;
+        this.hidden = hidden;
+        this.delta = delta;
+        if (teamNames == base.teamNames) {
+            this.teamNames = base.teamNames;
+            this.teamIdByName = base.teamIdByName;
+        } else {
+            this.teamNames = Collections.unmodifiableMap(teamNames);
+            this.teamIdByName = byName(this.teamNames);
+        }
+    }
+
+    public static MemberColumnarStore of(Collection<Row> rows, Map<Long, String> teamNames) {
+        return new MemberColumnarStore(new ArrayList<>(rows), teamNames);
+    }
+
+    /**
+     * 커밋된 변경을 반영한 새 스토어. 컬럼은 다시 만들지 않고 delta 에만 쌓는다. (변경 크기 + delta 크기만큼)
+     */
+    public MemberColumnarStore with(Changes changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        Map<Long, String> newTeamNames = teamNames;
+        if (!changes.teams.isEmpty()) {
+            newTeamNames = new HashMap<>(teamNames);
+            for (Map.Entry<Long, String> team : changes.teams.entrySet()) {
+                if (team.getValue() == null) {
+                    newTeamNames.remove(team.getKey());
+                } else {
+                    newTeamNames.put(team.getKey(), team.getValue());
+                }
+            }
+        }
+
+        BitSet newHidden = hidden;
+        TreeMap<Long, Row> newDelta = new TreeMap<>(delta); //엔진이 compact 하므로 compactThreshold 근처
+        for (Map.Entry<Long, Row> member : changes.members.entrySet()) {
+            int index = Arrays.binarySearch(ids, member.getKey());
+            if (index >= 0 && !newHidden.get(index)) {
+                if (newHidden == hidden) {
+                    newHidden = (BitSet) hidden.clone();
+                }
+                newHidden.set(index);
+            }
+            newDelta.put(member.getKey(), member.getValue());
+        }
+        return new MemberColumnarStore(this, newHidden, newDelta, newTeamNames);
+    }
+
+    /**
+     * base + delta 로 컬럼을 다시 만든 스토어 (검색 결과는 같다). 전체 정렬이라 O(N log N) - 요청 스레드에서 부르지 않는다
+     */
+    public MemberColumnarStore compact() {
+        if (delta.isEmpty()) {
+            return this;
+        }
+        return new MemberColumnarStore(liveRows(), teamNames);
+    }
+
+    //base 에 합쳐지지 않은 변경 건수
+    public int deltaSize() {
+        return delta.size();
+    }
+
+    public int size() {
+        int size = ids.length - hidden.cardinality();
+        for (Row row : delta.values()) {
+            if (row != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return fetch(condition, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * member id 순으로 offset 부터 limit 건
+     */
+    public List<MemberTeamDto> fetch(MemberSearchCondition condition, long offset, int limit) {
+        BitSet matched = match(condition);
+        Iterator<Row> changed = matchedDelta(condition).iterator();
+        Row nextChanged = changed.hasNext() ? changed.next() : null;
+        int row = matched.nextSetBit(0);
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        long skipped = 0;
+        while (result.size() < limit && (row >= 0 || nextChanged != null)) {
+            MemberTeamDto dto;
+            if (nextChanged == null || (row >= 0 && ids[row] < nextChanged.id)) { //base 와 delta 를 id 순으로 합친다
+                dto = skipped < offset ? null : dto(row);
+                row = matched.nextSetBit(row + 1);
+            } else {
+                dto = skipped < offset ? null : dto(nextChanged);
+                nextChanged = changed.hasNext() ? changed.next() : null;
+            }
+            if (dto == null) {
+                skipped++;
+            } else {
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+
+    public long count(MemberSearchCondition condition) {
+        return match(condition).cardinality() + matchedDelta(condition).size();
+    }
+
+    //base 에서 조건에 맞는 행
+    private BitSet match(MemberSearchCondition condition) {
+        BitSet matched = new BitSet(ids.length);
+        matched.set(0, ids.length);
+        matched.andNot(hidden);
+
+        if (hasText(condition.getUsername())) {
+            int code = Arrays.binarySearch(usernameDict, condition.getUsername());
+            and(matched, code >= 0 ? usernamePostings[code] : null);
+        }
+        if (hasText(condition.getUsernamePrefix())) {
+            and(matched, prefix(condition.getUsernamePrefix()));
+        }
+        if (hasText(condition.getTeamName())) {
+            Long teamId = teamIdByName.get(condition.getTeamName());
+            Integer ordinal = teamId != null ? teamOrdinalById.get(teamId) : null;
+            and(matched, ordinal != null ? teamPostings[ordinal] : null);
+        }
+        if (condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+            and(matched, ageRange(condition.getAgeGoe(), condition.getAgeLoe()));
+        }
+        return matched;
+    }
+
+    private BitSet prefix(String prefix) {
+        BitSet rows = new BitSet(ids.length);
+        int code = Arrays.binarySearch(usernameDict, prefix);
+        for (int i = code >= 0 ? code : -code - 1; i < usernameDict.length && usernameDict[i].startsWith(prefix); i++) {
+            rows.or(usernamePostings[i]);
+        }
+        return rows;
+    }
+
+    private BitSet ageRange(Integer ageGoe, Integer ageLoe) {
+        int from = ageGoe != null ? lowerBound(ageGoe) : 0;
+        int to = ageLoe != null ? lowerBound(ageLoe + 1L) : sortedAges.length;
+        BitSet rows = new BitSet(ids.length);
+        for (int i = from; i < to; i++) {
+            rows.set(rowsByAge[i]);
+        }
+        return rows;
+    }
+
+    //sortedAges 에서 age 이상인 첫 위치
+    private int lowerBound(long age) {
+        int low = 0;
+        int high = sortedAges.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedAges[mid] < age) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void and(BitSet matched, BitSet rows) {
+        if (rows == null) {
+            matched.clear();
+        } else {
+            matched.and(rows);
+        }
+    }
+
+    //delta 에서 조건에 맞는 행 (id 순)
+    private List<Row> matchedDelta(MemberSearchCondition condition) {
+        if (delta.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Long teamId = hasText(condition.getTeamName()) ? teamIdByName.get(condition.getTeamName()) : null;
+        List<Row> matched = new ArrayList<>();
+        for (Row row : delta.values()) {
+            if (row != null && row.matches(condition, teamId)) {
+                matched.add(row);
+            }
+        }
+        return matched;
+    }
+
+    private MemberTeamDto dto(int row) {
+        int ordinal = teamOrdinals[row];
+        Long teamId = ordinal >= 0 ? teamOrdinalIds[ordinal] : null;
+        int code = usernameCodes[row];
+        return new MemberTeamDto(ids[row], code >= 0 ? usernameDict[code] : null, ages[row], teamId, teamName(teamId));
+    }
+
+    private MemberTeamDto dto(Row row) {
+        return new MemberTeamDto(row.id, row.username, row.age, row.teamId, teamName(row.teamId));
+    }
+
+    private String teamName(Long teamId) {
+        return teamId != null ? teamNames.get(teamId) : null; //left join 이므로 팀이 없으면 null
+    }
+
+    private List<Row> liveRows() {
+        List<Row> rows = new ArrayList<>(ids.length + delta.size());
+        for (int i = hidden.nextClearBit(0); i < ids.length; i = hidden.nextClearBit(i + 1)) {
+            int ordinal = teamOrdinals[i];
+            int code = usernameCodes[i];
+            rows.add(new Row(ids[i], code >= 0 ? usernameDict[code] : null, ages[i], ordinal >= 0 ? teamOrdinalIds[ordinal] : null));
+        }
+        for (Row row : delta.values()) {
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static BitSet posting(BitSet[] postings, int code) {
+        if (postings[code] == null) {
+            postings[code] = new BitSet();
+        }
+        return postings[code];
+    }
+
+    private static Map<String, Long> byName(Map<Long, String> teamNames) {
+        Map<String, Long> byName = new HashMap<>();
+        teamNames.forEach((teamId, name) -> byName.put(name, teamId));
+        return byName;
+    }
+
+    public static final class Row {
+        final long id;
+        final String username;
+        final int age;
+        final Long teamId;
+
+        public Row(long id, String username, int age, Long teamId) {
+            this.id = id;
+            this.username = username;
+            this.age = age;
+            this.teamId = teamId;
+        }
+
+        //MemberSearchPredicates 와 같은 조건 (대소문자 구분)
+        boolean matches(MemberSearchCondition condition, Long teamIdOfName) {
+            if (hasText(condition.getUsername()) && !condition.getUsername().equals(username)) {
+                return false;
+            }
+            if (hasText(condition.getUsernamePrefix()) && (username == null || !username.startsWith(condition.getUsernamePrefix()))) {
+                return false;
+            }
+            if (hasText(condition.getTeamName()) && (teamIdOfName == null || !teamIdOfName.equals(teamId))) {
+                return false;
+            }
+            if (condition.getAgeGoe() != null && age < condition.getAgeGoe()) {
+                return false;
+            }
+            return condition.getAgeLoe() == null || age <= condition.getAgeLoe();
+        }
+    }
+
+    /**
+     * 한 트랜잭션에서 커밋된 회원/팀 변경 (id 별 마지막 상태, 삭제는 null)
+     */
+    public static final class Changes {
+        private final Map<Long, Row> members = new LinkedHashMap<>();
+        private final Map<Long, String> teams = new LinkedHashMap<>();
+
+        public void putMember(Row row) {
+            members.put(row.id, row);
+        }
+
+        public void deleteMember(Long id) {
+            members.put(id, null);
+        }
+
+        public void putTeam(Long id, String name) {
+            teams.put(id, name);
+        }
+
+        public void deleteTeam(Long id) {
+            teams.put(id, null);
+        }
+
+        public boolean isEmpty() {
+            return members.isEmpty() && teams.isEmpty();
+        }
+
+        public void addAll(Changes other) {
+            members.putAll(other.members);
+            teams.putAll(other.teams);
+        }
+
+        public void clear() {
+            members.clear();
+            teams.clear();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * H2 FullTextLucene 전문검색 인덱스 (member.fulltext.enabled, 기본 켜짐)
+ * 인덱스 생성/재생성은 애플리케이션이 한다. 시작할때 기존 전문 인덱스를 지우고 MEMBER.USERNAME, TEAM.NAME 에 다시 만든다.
+ * (ddl-auto: create 가 테이블을 다시 만들면서 H2 가 인덱스 갱신용으로 걸어둔 트리거가 사라지기 때문)
+ * 이후 insert/update/delete 는 H2 트리거가 루씬 인덱스에 반영한다.
+ *
+ * FTL_* 함수는 DB 프로세스 안에서 돈다 -> TCP 서버(jdbc:h2:tcp)로 붙을때는 H2 서버 클래스패스에 lucene jar 가 있어야함
+ * 인덱스를 못만들면(lucene 없음 등) 경고만 남기고 꺼진다 -> q 검색은 like '%q%' 로
+ */
+@Slf4j
+@Component
+public class MemberFullTextIndex {
+
+    private static final Pattern OPERATOR = Pattern.compile("(?<!\\S)(AND|OR|NOT)(?!\\S)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile boolean enabled;
+
+    public MemberFullTextIndex(JdbcTemplate jdbcTemplate,
+                               @Value("${member.fulltext.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS FTL_INIT FOR \"org.h2.fulltext.FullTextLucene.init\"");
+            jdbcTemplate.execute("CALL FTL_INIT()");
+            jdbcTemplate.execute("CALL FTL_DROP_ALL()");
+            jdbcTemplate.execute("CALL FTL_CREATE_INDEX('PUBLIC', 'MEMBER', 'USERNAME')");
+            jdbcTemplate.execute("CALL FTL_CREATE_INDEX('PUBLIC', 'TEAM', 'NAME')");
+        } catch (DataAccessException e) {
+            enabled = false;
+            log.warn("full-text index could not be created, q= searches fall back to like '%q%'", e);
+            return;
+        }
+        log.info("full-text index created in {}ms", System.currentTimeMillis() - start);
+    }
+
+    //인덱스를 테이블 내용으로 다시 만든다. (트리거를 거치지 않은 변경이 있었을때)
+    public void reindex() {
+        jdbcTemplate.execute("CALL FTL_REINDEX()");
+    }
+
+    /**
+     * 점수 높은순 limit 건 (MEMBER, TEAM 행이 섞여서 나온다)
+     */
+    public List<Hit> search(String text, int limit) {
+        return query(escape(text), limit);
+    }
+
+    /**
+     * 한 컬럼(MEMBER.USERNAME 이면 "USERNAME", TEAM.NAME 이면 "NAME")에서만 점수 높은순 limit 건
+     * 루씬 문서에 인덱스 컬럼이 컬럼명 필드로 들어있어서 "컬럼:(단어...)" 로 그 테이블 행만 찾는다.
+     */
+    public List<Hit> search(String text, String column, int limit) {
+        return query(column + ":(" + escape(text) + ")", limit);
+    }
+
+    private List<Hit> query(String luceneQuery, int limit) {
+        return jdbcTemplate.query("SELECT * FROM FTL_SEARCH_DATA(?, ?, 0)",
+                (rs, rowNum) -> {
+                    Array keys = rs.getArray("KEYS");
+                    Object key = ((Object[]) keys.getArray())[0];
+                    return new Hit(rs.getString("TABLE"), Long.valueOf(String.valueOf(key)), rs.getFloat("SCORE"));
+                },
+                luceneQuery, limit);
+    }
+
+    //사용자 입력을 루씬 쿼리 문법으로 해석하지 않도록 특수문자 이스케이프 (단어 단위로 검색됨)
+    //AND, OR, NOT 은 대문자일때만 연산자라서 소문자 단어로 바꾼다 (인덱스도 소문자로 들어가 있음)
+    static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ("\\+-!():^[]\"{}~*?|&/".indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        Matcher operator = OPERATOR.matcher(escaped.toString().trim());
+        StringBuffer words = new StringBuffer();
+        while (operator.find()) {
+            operator.appendReplacement(words, operator.group(1).toLowerCase(Locale.ROOT));
+        }
+        operator.appendTail(words);
+        return words.toString();
+    }
+
+    @Getter
+    public static class Hit {
+        private final String table;
+        private final Long id;
+        private final float score;
+
+        public Hit(String table, Long id, float score) {
+            this.table = table;
+            this.id = id;
+            this.score = score;
+        }
+    }
+}
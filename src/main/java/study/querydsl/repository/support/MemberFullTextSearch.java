@@ -0,0 +1,68 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.JPAExpressions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static study.querydsl.Entitiy.QMember.member;
+import static study.querydsl.Entitiy.QTeam.team;
+
+/**
+ * 회원 전문검색 (q) - 회원명, 팀명을 단어 단위로 검색하고 점수를 매긴다.
+ * 팀명이 매칭되면 그 팀 회원 전부가 팀 점수로 매칭된다. (회원 자신의 점수와 큰쪽) -> member.team.id in (...) 조건
+ * 회원명 매칭은 점수 상위 max-hits 건, 팀명 매칭은 max-team-hits 팀까지만 (top-N, 따로 센다)
+ * -> member.id in (...) / member.team.id in (...) 조건으로 인덱스를 탄다.
+ * 페이징 카운트도 같은 조건으로 세므로 결과 건수와 맞는다. 한도에 걸려서 잘렸으면 {@link FullTextHits#isTruncated()}
+ * (전체 매칭 수보다 작을수 있음)
+ *
+ * 전문검색이 꺼져있으면(member.fulltext.enabled=false 또는 인덱스 생성 실패) like '%q%' 로 대신한다. (점수 없음, 인덱스 못탐)
+ */
+@Slf4j
+@Component
+public class MemberFullTextSearch {
+
+    private final MemberFullTextIndex index;
+    private final int maxHits;
+    private final int maxTeamHits;
+
+    public MemberFullTextSearch(MemberFullTextIndex index,
+                                @Value("${member.fulltext.max-hits:1000}") int maxHits,
+                                @Value("${member.fulltext.max-team-hits:100}") int maxTeamHits) {
+        this.index = index;
+        this.maxHits = maxHits;
+        this.maxTeamHits = maxTeamHits;
+    }
+
+    public FullTextHits find(String q) {
+        if (!index.isEnabled()) {
+            return new FullTextHits(member.username.containsIgnoreCase(q)
+                    .or(member.team.id.in(JPAExpressions
+                            .select(team.id)
+                            .from(team)
+                            .where(team.name.containsIgnoreCase(q)))));
+        }
+
+        //회원 매칭이 많아도 팀 매칭이 밀려나지 않게 테이블별로 따로 찾는다
+        List<MemberFullTextIndex.Hit> memberHits = index.search(q, "USERNAME", maxHits);
+        List<MemberFullTextIndex.Hit> teamHits = index.search(q, "NAME", maxTeamHits);
+        boolean truncated = memberHits.size() >= maxHits || teamHits.size() >= maxTeamHits;
+        if (truncated) {
+            log.info("full-text query '{}' reached max-hits (members {}/{}, teams {}/{}), only the top scored matches are used",
+                    q, memberHits.size(), maxHits, teamHits.size(), maxTeamHits);
+        }
+        return new FullTextHits(scores(memberHits), scores(teamHits), truncated);
+    }
+
+    private static Map<Long, Float> scores(List<MemberFullTextIndex.Hit> hits) {
+        Map<Long, Float> scores = new HashMap<>();
+        for (MemberFullTextIndex.Hit hit : hits) {
+            scores.merge(hit.getId(), hit.getScore(), Math::max);
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,75 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.JPAExpressions;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.QTeam;
+import study.querydsl.dto.MemberSearchCondition;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.Entitiy.QMember.member;
+
+/**
+ * 리포지토리들이 같이 쓰는 회원 검색 조건
+ */
+public final class MemberSearchPredicates {
+
+    private static final QTeam teamSub = new QTeam("teamSub");
+
+    private MemberSearchPredicates() {
+    }
+
+    /**
+     * 팀명 조건을 left join 한 team.name 에 걸면 H2 는 member 를 먼저 전체 스캔한 뒤 team 을 찾는다. (외부조인은 순서를 못바꿈)
+     * -> 팀명으로 팀 id 를 먼저 찾고(team.name 유니크 인덱스) member.team_id 인덱스(idx_member_team_age)로 찾도록 서브쿼리로 건다.
+     * 결과는 team.name.eq(teamName) 과 같음
+     */
+    public static BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName)
+                ? member.team.id.in(JPAExpressions
+                        .select(teamSub.id)
+                        .from(teamSub)
+                        .where(teamSub.name.eq(teamName)))
+                : null;
+    }
+
+    /**
+     * 회원명 조건 (username 일치 + usernamePrefix 앞부분)
+     * ignoreCase 면 소문자로 저장된 username_lower 컬럼에 건다. lower(username) 은 인덱스를 못탐
+     */
+    public static BooleanExpression username(MemberSearchCondition condition) {
+        StringPath path = condition.isIgnoreCase() ? member.usernameLower : member.username;
+        BooleanExpression eq = hasText(condition.getUsername())
+                ? path.eq(condition.isIgnoreCase() ? Member.lower(condition.getUsername()) : condition.getUsername())
+                : null;
+        BooleanExpression prefix = hasText(condition.getUsernamePrefix())
+                ? prefix(path, condition.isIgnoreCase() ? Member.lower(condition.getUsernamePrefix()) : condition.getUsernamePrefix())
+                : null;
+        if (eq == null || prefix == null) {
+            return eq != null ? eq : prefix;
+        }
+        return eq.and(prefix);
+    }
+
+    /**
+     * 앞부분 검색을 like 'abc%' 대신 범위 조건 (abc <= x < abd) 으로 건다. -> 인덱스 범위 스캔
+     * 범위와 앞부분이 같은 뜻이 되는건 문자열을 코드값 순서로 비교할때(바이너리 collation - H2 기본)뿐이다.
+     * 대소문자/악센트를 무시하거나 언어별 정렬을 쓰는 collation 에서는 앞부분이 다른 값이 범위에 들어오거나 빠질수 있다.
+     */
+    static BooleanExpression prefix(StringPath path, String prefix) {
+        String upperBound = upperBound(prefix);
+        return upperBound != null
+                ? path.goe(prefix).and(path.lt(upperBound))
+                : path.goe(prefix);
+    }
+
+    //prefix 로 시작하는 문자열보다 큰 가장 작은 문자열 (마지막 글자 + 1)
+    static String upperBound(String prefix) {
+        char last = prefix.charAt(prefix.length() - 1);
+        if (last == Character.MAX_VALUE) {
+            return null;
+        }
+        return prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+    }
+}
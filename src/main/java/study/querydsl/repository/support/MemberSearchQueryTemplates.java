@@ -0,0 +1,104 @@
+package study.querydsl.repository.support;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 회원 검색 쿼리 템플릿 캐시
+ * 검색조건 4개(username, teamName, ageGoe, ageLoe)의 있고 없음 조합은 16가지 뿐이므로
+ * 조합(shape)별 JPQL 을 미리 만들어두고 요청때는 파라미터 값만 바인딩한다.
+ * -> 매 요청마다 QMemberTeamDto / BooleanExpression 트리를 만들고 JPQL 로 직렬화하는 비용이 없어지고,
+ *    JPQL 문자열이 항상 같아서 하이버네이트 쿼리 플랜 캐시도 항상 히트한다.
+ * 결과는 where 파라미터 방식(searchByWhere)과 같다. (조건은 {@link MemberSearchPredicates} 와 같아야함 - MemberSearchQueryTemplatesTest 가 16가지를 비교)
+ * member.search.query-templates.enabled=true 면 search / searchByWhere / searchByBuilder 가 지원하는 조건을 여기로 보낸다.
+ * 항상 템플릿으로 검색하려면 MemberJpaRepository.searchByTemplate
+ */
+public final class MemberSearchQueryTemplates {
+
+    private static final int USERNAME = 1;
+    private static final int TEAM_NAME = 1 << 1;
+    private static final int AGE_GOE = 1 << 2;
+    private static final int AGE_LOE = 1 << 3;
+
+    private static final String[] TEMPLATES = new String[16];
+
+    static {
+        for (int shape = 0; shape < TEMPLATES.length; shape++) {
+            TEMPLATES[shape] = jpql(shape);
+        }
+    }
+
+    private MemberSearchQueryTemplates() {
+    }
+
+    /**
+     * 템플릿으로 처리할수 있는 조건인지 - 앞부분 검색, 대소문자 무시 검색, 전문검색(q)은 Querydsl 쪽으로
+     */
+    public static boolean supports(MemberSearchCondition condition) {
+        return !hasText(condition.getUsernamePrefix()) && !condition.isIgnoreCase() && !hasText(condition.getQ());
+    }
+
+    public static List<MemberTeamDto> search(EntityManager em, MemberSearchCondition condition) {
+        int shape = shape(condition);
+        TypedQuery<MemberTeamDto> query = em.createQuery(TEMPLATES[shape], MemberTeamDto.class);
+        if ((shape & USERNAME) != 0) {
+            query.setParameter("username", condition.getUsername());
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            query.setParameter("teamName", condition.getTeamName());
+        }
+        if ((shape & AGE_GOE) != 0) {
+            query.setParameter("ageGoe", condition.getAgeGoe());
+        }
+        if ((shape & AGE_LOE) != 0) {
+            query.setParameter("ageLoe", condition.getAgeLoe());
+        }
+        return query.getResultList();
+    }
+
+    static int shape(MemberSearchCondition condition) {
+        int shape = 0;
+        if (hasText(condition.getUsername())) {
+            shape |= USERNAME;
+        }
+        if (hasText(condition.getTeamName())) {
+            shape |= TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        return shape;
+    }
+
+    private static String jpql(int shape) {
+        StringBuilder jpql = new StringBuilder()
+                .append("select new study.querydsl.dto.MemberTeamDto(m.id, m.username, m.age, t.id, t.name)")
+                .append(" from Member m left join m.team t");
+        String prefix = " where ";
+        if ((shape & USERNAME) != 0) {
+            jpql.append(prefix).append("m.username = :username");
+            prefix = " and ";
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            jpql.append(prefix).append("m.team.id in (select ts.id from Team ts where ts.name = :teamName)"); //MemberSearchPredicates.teamNameEq 참고
+            prefix = " and ";
+        }
+        if ((shape & AGE_GOE) != 0) {
+            jpql.append(prefix).append("m.age >= :ageGoe");
+            prefix = " and ";
+        }
+        if ((shape & AGE_LOE) != 0) {
+            jpql.append(prefix).append("m.age <= :ageLoe");
+        }
+        return jpql.toString();
+    }
+}
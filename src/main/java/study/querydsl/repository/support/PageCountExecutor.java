@@ -0,0 +1,105 @@
+package study.querydsl.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 페이징 컨텐츠 쿼리와 카운트 쿼리를 동시에 실행 (member.search.parallel-count.enabled=true 일때만)
+ * 카운트는 countQueryExecutor 스레드에서 별도 커넥션 / 읽기전용 트랜잭션으로 돌리고, 컨텐츠는 호출한 스레드에서 그대로 돌린다.
+ * PageableExecutionUtils 가 카운트가 필요없다고 판단하면(첫페이지가 덜 찼거나 마지막 페이지) 카운트는 취소한다.
+ * 컨텐츠 쿼리가 끝나고 timeout 안에 카운트가 안끝나면(풀이 밀렸거나 커넥션을 못얻음) 취소하고 호출한 스레드에서 직접 센다.
+ *
+ * 카운트 쿼리는 주입받은 공유 EntityManager(프록시)로 만들어야 실행하는 스레드의 트랜잭션 EntityManager 를 쓴다.
+ * 컨텐츠 쿼리와 같은 JPAQuery 객체를 넘기면 안됨 (스레드 안전하지 않음)
+ */
+@Slf4j
+@Component
+public class PageCountExecutor {
+
+    private final boolean enabled;
+    private final AsyncTaskExecutor executor;
+    private final Duration timeout;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public PageCountExecutor(@Value("${member.search.parallel-count.enabled:false}") boolean enabled,
+                             @Value("${member.search.parallel-count.timeout:2s}") Duration timeout,
+                             @Qualifier("countQueryExecutor") AsyncTaskExecutor executor,
+                             PlatformTransactionManager transactionManager) {
+        this.enabled = enabled;
+        this.timeout = timeout;
+        this.executor = executor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public <T> Page<T> getPage(Pageable pageable, Supplier<List<T>> contentQuery, LongSupplier countQuery) {
+        if (!concurrent()) {
+            return PageableExecutionUtils.getPage(contentQuery.get(), pageable, countQuery);
+        }
+
+        Future<Long> count;
+        try {
+            count = executor.submit(() -> readOnlyTransaction.execute(status -> countQuery.getAsLong()));
+        } catch (TaskRejectedException e) { //풀이 꽉 차면 순서대로
+            return PageableExecutionUtils.getPage(contentQuery.get(), pageable, countQuery);
+        }
+
+        try {
+            List<T> content = contentQuery.get();
+            return PageableExecutionUtils.getPage(content, pageable, () -> await(count, countQuery));
+        } finally {
+            count.cancel(true); //이미 끝났으면 아무일도 안함. 안쓰였거나 컨텐츠 쿼리가 실패했으면 취소
+        }
+    }
+
+    //쓰기 트랜잭션 안에서는 다른 커넥션이 커밋 안된 내 변경분을 못보므로 카운트가 틀어진다 -> 순서대로 실행
+    private boolean concurrent() {
+        return enabled
+                && (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    }
+
+    private long await(Future<Long> count, LongSupplier countQuery) {
+        try {
+            return count.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            count.cancel(true);
+            log.debug("count query did not finish in {}ms, counting on the caller thread", timeout.toMillis());
+            return countQuery.getAsLong();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("count query interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
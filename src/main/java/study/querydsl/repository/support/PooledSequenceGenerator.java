@@ -0,0 +1,44 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 테이블별 시퀀스 + pooled-lo 로 id 를 블록 단위로 받아온다.
+ * 기본 @GeneratedValue 는 persist 할때마다 hibernate_sequence 를 한번씩 호출하지만 이건 block-size 건에 한번만 호출
+ * (DB 시퀀스는 block-size 씩 증가하고 그 사이 값은 메모리에서 나눠줌 -> 서버가 여러대여도 겹치지 않음)
+ *
+ * 블록 크기는 spring.jpa.properties.querydsl.id.block-size.{테이블명} (없으면 .default, 그것도 없으면 50)
+ * 시퀀스를 공유하지 않으므로 테이블마다 sequence_name 파라미터를 준다.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "study.querydsl.repository.support.PooledSequenceGenerator";
+    public static final String BLOCK_SIZE_SETTING = "querydsl.id.block-size";
+    public static final int DEFAULT_BLOCK_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        String table = params.getProperty(PersistentIdentifierGenerator.TABLE, "").toLowerCase(Locale.ROOT);
+
+        Object blockSize = settings.get(BLOCK_SIZE_SETTING + "." + table);
+        if (blockSize == null) {
+            blockSize = settings.get(BLOCK_SIZE_SETTING + ".default");
+        }
+        params.setProperty(INCREMENT_PARAM, blockSize != null ? blockSize.toString() : String.valueOf(DEFAULT_BLOCK_SIZE));
+        if (!params.containsKey(OPT_PARAM)) {
+            params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        }
+        super.configure(type, params, serviceRegistry);
+    }
+}
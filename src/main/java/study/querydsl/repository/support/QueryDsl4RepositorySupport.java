@@ -1,13 +1,24 @@
 package study.querydsl.repository.support;
 
+import com.querydsl.core.Tuple;
+import com.querydsl.core.dml.DMLClause;
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.FlushMode;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import
         org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
@@ -16,10 +27,17 @@ import org.springframework.data.querydsl.SimpleEntityPathResolver;
 
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 import javax.annotation.PostConstruct;
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
 /**
  * Querydsl 4.x 버전에 맞춘 Querydsl 지원 라이브러리
@@ -28,15 +46,32 @@ import java.util.function.Function;
  * @see
 org.springframework.data.jpa.repository.support.QuerydslRepositorySupport
  */
+@Slf4j
 @Repository
 public abstract class QueryDsl4RepositorySupport {
+    private static final int READ_ONLY_FETCH_SIZE = 500;
     private final Class domainClass;
+    private final boolean readOnlyByDefault;
+    private PathBuilder<?> entityPath;
+    private NumberPath<Long> idPath;
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private SearchCountCache searchCountCache;
+    private SearchCacheEvictListener searchCacheEvictListener;
+    private PageCountExecutor pageCountExecutor;
+    private ApplicationEventPublisher eventPublisher;
+    private TransactionTemplate chunkTransaction;
     public QueryDsl4RepositorySupport(Class<?> domainClass) {
+        this(domainClass, false);
+    }
+    /**
+     * readOnlyByDefault 면 select, selectFrom, applyPagination, applySlice 로 만드는 조회가 모두 {@link #readOnly} 를 거친다.
+     */
+    public QueryDsl4RepositorySupport(Class<?> domainClass, boolean readOnlyByDefault) {
         Assert.notNull(domainClass, "Domain class must not be null!");
         this.domainClass = domainClass;
+        this.readOnlyByDefault = readOnlyByDefault;
     }
     @Autowired
     public void setEntityManager(EntityManager entityManager) {
@@ -46,15 +81,42 @@ public abstract class QueryDsl4RepositorySupport {
         SimpleEntityPathResolver resolver = SimpleEntityPathResolver.INSTANCE;
         EntityPath path = resolver.createPath(entityInformation.getJavaType());
         this.entityManager = entityManager;
-        this.querydsl = new Querydsl(entityManager, new
-                PathBuilder<>(path.getType(), path.getMetadata()));
+        this.entityPath = new PathBuilder<>(path.getType(), path.getMetadata());
+        this.idPath = entityPath.getNumber(entityInformation.getIdAttribute().getName(), Long.class);
+        this.querydsl = new Querydsl(entityManager, entityPath);
         this.queryFactory = new JPAQueryFactory(entityManager);
     }
+    @Autowired
+    public void setSearchCountCache(SearchCountCache searchCountCache) {
+        this.searchCountCache = searchCountCache;
+    }
+    @Autowired
+    public void setSearchCacheEvictListener(SearchCacheEvictListener searchCacheEvictListener) {
+        this.searchCacheEvictListener = searchCacheEvictListener;
+    }
+    @Autowired
+    public void setPageCountExecutor(PageCountExecutor pageCountExecutor) {
+        this.pageCountExecutor = pageCountExecutor;
+    }
+    @Autowired
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
     @PostConstruct
     public void validate() {
         Assert.notNull(entityManager, "EntityManager must not be null!");
         Assert.notNull(querydsl, "Querydsl must not be null!");
         Assert.notNull(queryFactory, "QueryFactory must not be null!");
+        Assert.notNull(searchCountCache, "SearchCountCache must not be null!");
+        Assert.notNull(searchCacheEvictListener, "SearchCacheEvictListener must not be null!");
+        Assert.notNull(pageCountExecutor, "PageCountExecutor must not be null!");
+        Assert.notNull(eventPublisher, "ApplicationEventPublisher must not be null!");
+        Assert.notNull(chunkTransaction, "TransactionManager must not be null!");
     }
     protected JPAQueryFactory getQueryFactory() {
         return queryFactory;
@@ -66,26 +128,250 @@ public abstract class QueryDsl4RepositorySupport {
         return entityManager;
     }
     protected <T> JPAQuery<T> select(Expression<T> expr) {
-        return getQueryFactory().select(expr);
+        return readOnlyIfDefault(getQueryFactory().select(expr));
     }
     protected <T> JPAQuery<T> selectFrom(EntityPath<T> from) {
-        return getQueryFactory().selectFrom(from);
+        return readOnlyIfDefault(getQueryFactory().selectFrom(from));
+    }
+    protected <T> JPAQuery<T> selectReadOnly(Expression<T> expr) {
+        return readOnly(getQueryFactory().select(expr));
+    }
+    protected <T> JPAQuery<T> selectFromReadOnly(EntityPath<T> from) {
+        return readOnly(getQueryFactory().selectFrom(from));
+    }
+    /**
+     * 읽기전용 조회 - 엔티티를 read-only 로 올려서 dirty checking 용 스냅샷을 안만들고(flush 때 비교도 안함),
+     * 쿼리 전에 flush 도 하지 않는다. (org.hibernate.readOnly, fetchSize, FlushMode.MANUAL 힌트)
+     * 쓰기 트랜잭션 안에서는 방금 바꾼 내용을 읽고 고칠수 있어야 하므로 힌트를 붙이지 않는다.
+     * 읽기전용 트랜잭션은 스프링이 이미 세션을 read-only/MANUAL 로 바꿔두므로 fetchSize 만 더해지고,
+     * 힌트가 의미있는건 트랜잭션 없이 열린 EntityManager (OSIV) 에서 조회할때다.
+     * 쿼리를 만든 트랜잭션에서 실행해야 한다.
+     */
+    protected <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return query;
+        }
+        return query
+                .setHint(QueryHints.READ_ONLY, true)
+                .setHint(QueryHints.FETCH_SIZE, READ_ONLY_FETCH_SIZE)
+                .setHint(QueryHints.FLUSH_MODE, FlushMode.MANUAL);
+    }
+    private <T> JPAQuery<T> readOnlyIfDefault(JPAQuery<T> query) {
+        return readOnlyByDefault ? readOnly(query) : query;
     }
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery) {
-        JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaQuery).fetch();
-        return PageableExecutionUtils.getPage(content, pageable, jpaQuery::fetchCount);
+        return applyPagination(pageable, (Object) null, contentQuery);
     }
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
             JPAQuery> countQuery) {
-        JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
+        return applyPagination(pageable, (Object) null, contentQuery, countQuery);
+    }
+    /**
+     * countCacheKey 가 있으면 카운트 결과를 {@link SearchCountCache} 에 보관해서 다음 페이지부터는 재사용한다.
+     * 키는 카운트 쿼리를 식별할수 있어야 한다. (예: normalized 된 검색조건)
+     */
+    protected <T> Page<T> applyPagination(Pageable pageable, Object countCacheKey,
+                                          Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        JPAQuery jpaQuery = readOnlyIfDefault(contentQuery.apply(getQueryFactory()));
         List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaContentQuery).fetch();
-        JPAQuery countResult = countQuery.apply(getQueryFactory());
+                jpaQuery).fetch();
         return PageableExecutionUtils.getPage(content, pageable,
-                countResult::fetchCount);
+                () -> searchCountCache.getCount(countCacheKey, jpaQuery::fetchCount));
+    }
+    protected <T> Page<T> applyPagination(Pageable pageable, Object countCacheKey,
+                                          Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
+            JPAQuery> countQuery) {
+        JPAQuery jpaContentQuery = readOnlyIfDefault(contentQuery.apply(getQueryFactory()));
+        JPAQuery countResult = readOnlyIfDefault(countQuery.apply(getQueryFactory()));
+        //카운트 쿼리가 따로 있으니 parallel-count 가 켜져있으면 컨텐츠 쿼리와 동시에 실행 (PageCountExecutor)
+        return pageCountExecutor.getPage(pageable,
+                () -> getQuerydsl().applyPagination(pageable, jpaContentQuery).fetch(),
+                () -> searchCountCache.getCount(countCacheKey, countResult::fetchCount));
+    }
+    /**
+     * 카운트 쿼리 없이 limit + 1 건을 조회해서 다음 페이지 존재 여부만 알려준다. (무한스크롤용)
+     */
+    protected <T> Slice<T> applySlice(Pageable pageable,
+                                      Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        JPAQuery jpaQuery = readOnlyIfDefault(contentQuery.apply(getQueryFactory()));
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<T>(jpaQuery.fetch());
+        }
+        getQuerydsl().applySorting(pageable.getSort(), jpaQuery);
+        List<T> content = jpaQuery
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1)
+                .fetch();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content.remove(pageable.getPageSize());
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+    /**
+     * 벌크 update/delete - 영속성 컨텍스트를 거치지 않으므로 실행전에 flush, 실행후에 clear 해서 DB 와 맞춰준다.
+     * 엔티티 리스너가 불리지 않기 때문에 트랜잭션이 끝나면 검색 캐시를 비우도록 직접 등록하고 {@link BulkWriteEvent} 를 발행한다.
+     */
+    protected long executeBulk(Function<JPAQueryFactory, DMLClause<?>> bulkQuery) {
+        long affected = executeChunk(bulkQuery);
+        eventPublisher.publishEvent(new BulkWriteEvent(domainClass, affected));
+        return affected;
+    }
+
+    /**
+     * where 에 맞는 행을 id 범위 chunkSize 씩 나눠서 update 한다. 청크마다 별도 트랜잭션으로 커밋하므로 한번에 잡는 락이 청크 크기로 제한됨
+     * 예) updateInChunks(member.team.id.eq(teamId), update -> update.set(member.age, member.age.add(1)), 1000, listener)
+     * 엔티티 콜백(@PreUpdate)을 거치지 않으므로 다른 컬럼에서 계산되는 컬럼은 setter 에서 같이 set 해야함 (예: Member.usernameLower)
+     */
+    protected long updateInChunks(Predicate where, Consumer<JPAUpdateClause> setter, int chunkSize,
+                                  BulkProgressListener listener) {
+        return executeInChunks(where, chunkSize, listener, range -> {
+            JPAUpdateClause update = getQueryFactory().update(entityPath).where(where, range);
+            setter.accept(update);
+            return update;
+        });
+    }
+
+    /**
+     * where 에 맞는 행을 id 범위 chunkSize 씩 나눠서 delete 한다. (청크마다 커밋)
+     */
+    protected long deleteInChunks(Predicate where, int chunkSize, BulkProgressListener listener) {
+        return executeInChunks(where, chunkSize, listener,
+                range -> getQueryFactory().delete(entityPath).where(where, range));
+    }
+
+    /**
+     * where 에 맞는 행을 id 순으로 chunkSize 건씩(키셋 - 마지막 id 다음부터 limit) 잘라 청크마다 새 트랜잭션에서 실행한다.
+     * 청크마다 그 청크의 첫/마지막 id 를 찾아서 그 범위만 update/delete 하므로 id 가 듬성듬성해도 빈 청크(빈 트랜잭션)가 없다.
+     * - 청크마다 flush/clear, 검색 캐시/2차 캐시 정리는 {@link #executeBulk} 와 같음
+     * - 중간에 실패하면 이미 커밋된 청크는 남는다. where 를 다시 걸어도 되는 작업(멱등)이거나 진행상황을 보고 이어서 해야함
+     * - 시작할때의 최대 id 보다 크게 추가된 행은 대상이 아님
+     * - {@link BulkWriteEvent} 는 청크마다가 아니라 끝나고 한번 발행 (team_stats 재계산을 한번만) -> 그 사이 team_stats 는 이전 값
+     *   중간에 실패하면 커밋된 청크의 행수만으로 발행한다. (completed=false, 커밋된 청크가 없으면 발행 안함)
+     * 청크끼리 커밋이 따로라서 트랜잭션 안에서 부르면 안된다.
+     */
+    private long executeInChunks(Predicate where, int chunkSize, BulkProgressListener listener,
+                                 Function<Predicate, DMLClause<?>> chunkQuery) {
+        Assert.isTrue(chunkSize > 0, "chunkSize must be positive");
+        Assert.state(!TransactionSynchronizationManager.isActualTransactionActive(),
+                "chunked bulk commits each chunk on its own and must not run inside a transaction");
+        long start = System.currentTimeMillis();
+
+        Tuple bounds = chunkTransaction.execute(status -> getQueryFactory()
+                .select(idPath.count(), idPath.max())
+                .from(entityPath)
+                .where(where)
+                .fetchOne());
+        Long maxId = bounds != null ? bounds.get(idPath.max()) : null;
+        if (maxId == null) {
+            return 0;
+        }
+        long chunks = (bounds.get(idPath.count()) + chunkSize - 1) / chunkSize; //시작할때 기준 (진행중에 바뀔수 있음)
+
+        long totalAffected = 0;
+        long chunk = 0;
+        boolean completed = false;
+        try {
+            Long lastId = null;
+            while (true) {
+                Long afterId = lastId;
+                Chunk result = chunkTransaction.execute(status -> executeNextChunk(where, afterId, maxId, chunkSize, chunkQuery));
+                if (result == null) {
+                    break;
+                }
+                chunk++;
+                totalAffected += result.affected;
+                lastId = result.toId;
+                listener.onChunk(new BulkProgress(domainClass, chunk, Math.max(chunks, chunk), result.fromId, result.toId,
+                        result.affected, totalAffected, !result.hasMore, System.currentTimeMillis() - start));
+                if (!result.hasMore) {
+                    break;
+                }
+            }
+            completed = true;
+        } finally {
+            //중간에 실패해도 이미 커밋된 청크가 있으면 그만큼 발행 (team_stats, 컬럼형 스냅샷이 이전 값으로 남지 않도록)
+            if (totalAffected > 0) {
+                publishBulkWrite(totalAffected, completed);
+            }
+        }
+        log.info("chunked bulk on {}: {} rows in {} chunks, {}ms",
+                domainClass.getSimpleName(), totalAffected, chunk, System.currentTimeMillis() - start);
+        return totalAffected;
+    }
+
+    //afterId 다음부터 chunkSize + 1 개 id 를 읽어서(하나 더 있으면 다음 청크가 있음) 첫 id ~ chunkSize 번째 id 범위만 실행
+    private Chunk executeNextChunk(Predicate where, Long afterId, long maxId, int chunkSize,
+                                   Function<Predicate, DMLClause<?>> chunkQuery) {
+        List<Long> ids = getQueryFactory()
+                .select(idPath)
+                .from(entityPath)
+                .where(where, afterId != null ? idPath.gt(afterId) : null, idPath.loe(maxId))
+                .orderBy(idPath.asc())
+                .limit(chunkSize + 1L)
+                .fetch();
+        if (ids.isEmpty()) {
+            return null;
+        }
+        long fromId = ids.get(0);
+        long toId = ids.get(Math.min(ids.size(), chunkSize) - 1);
+        long affected = executeChunk(queryFactory -> chunkQuery.apply(idPath.between(fromId, toId)));
+        return new Chunk(fromId, toId, affected, ids.size() > chunkSize);
+    }
+
+    private void publishBulkWrite(long affected, boolean completed) {
+        try {
+            chunkTransaction.executeWithoutResult(status ->
+                    eventPublisher.publishEvent(new BulkWriteEvent(domainClass, affected, completed)));
+        } catch (RuntimeException e) {
+            if (completed) {
+                throw e;
+            }
+            //청크 실패 예외를 가리지 않는다
+            log.error("chunked bulk on {} failed after {} committed rows and the bulk write event could not be published",
+                    domainClass.getSimpleName(), affected, e);
+        }
+    }
+
+    private static class Chunk {
+        private final long fromId;
+        private final long toId;
+        private final long affected;
+        private final boolean hasMore;
+
+        Chunk(long fromId, long toId, long affected, boolean hasMore) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.affected = affected;
+            this.hasMore = hasMore;
+        }
+    }
+
+    //flush -> 실행 -> clear, 트랜잭션이 끝나면 검색 캐시와 해당 엔티티의 2차 캐시 리전을 비운다
+    private long executeChunk(Function<JPAQueryFactory, DMLClause<?>> bulkQuery) {
+        getEntityManager().flush();
+        long affected = bulkQuery.apply(getQueryFactory()).execute();
+        getEntityManager().clear();
+        evictSecondLevelCacheOnCompletion();
+        searchCacheEvictListener.evictOnCompletion();
+        return affected;
+    }
+
+    //커밋 전에 비우면 다른 트랜잭션이 이전 값을 다시 캐시할수 있으므로 끝난 뒤에 비운다
+    private void evictSecondLevelCacheOnCompletion() {
+        Cache cache = getEntityManager().getEntityManagerFactory().getCache();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.evict(domainClass);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                cache.evict(domainClass);
+            }
+        });
     }
-}
\ No newline at end of file
+}
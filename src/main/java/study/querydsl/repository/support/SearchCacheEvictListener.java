@@ -0,0 +1,57 @@
+package study.querydsl.repository.support;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Member, Team 엔티티 리스너 - 쓰기가 일어난 트랜잭션이 끝나면 검색 캐시(카운트, 결과)를 비운다.
+ * 트랜잭션당 한번만 등록하고, 트랜잭션 밖에서의 쓰기는 바로 비운다.
+ * 벌크 update/delete 처럼 엔티티 콜백을 안타는 쓰기는 {@link #evictOnCompletion()} 을 직접 불러야한다.
+ * (스프링 부트가 하이버네이트에 SpringBeanContainer 를 넣어주기 때문에 빈으로 주입받을수 있음)
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchCacheEvictListener {
+
+    private final SearchCountCache searchCountCache;
+    private final SearchResultCache searchResultCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(Object entity) {
+        evictOnCompletion();
+    }
+
+    //커밋(혹은 롤백) 이후에 비워야 다른 트랜잭션이 커밋 전 값을 다시 캐시에 넣지 못한다.
+    public void evictOnCompletion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictAll();
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof EvictOnCompletion) {
+                return;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new EvictOnCompletion());
+    }
+
+    public void evictAll() {
+        searchCountCache.evictAll();
+        searchResultCache.evictAll();
+    }
+
+    private class EvictOnCompletion implements TransactionSynchronization {
+        @Override
+        public void afterCompletion(int status) {
+            evictAll();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package study.querydsl.repository.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * 페이징 카운트 쿼리 결과 캐시
+ * 같은 검색조건으로 페이지를 넘길때마다 count(*) 를 다시 날리지 않도록 검색조건을 키로 TTL 동안 보관한다.
+ * 회원/팀 쓰기가 커밋되면 {@link SearchCacheEvictListener} 가 전체를 비운다.
+ */
+@Component
+public class SearchCountCache extends WriteInvalidatedCache {
+
+    public SearchCountCache(@Value("${member.search.count-cache.ttl:30s}") Duration ttl,
+                            @Value("${member.search.count-cache.max-size:10000}") long maxSize) {
+        super(ttl, maxSize);
+    }
+
+    /**
+     * key 는 카운트 쿼리를 식별할수 있어야함 - 같은 조건이라도 쿼리가 다르면 카운트도 다르므로 쿼리 이름을 같이 넣는다.
+     * 예) Arrays.asList("member.searchPageComplex", condition.normalized())
+     */
+    public long getCount(Object key, LongSupplier countQuery) {
+        return this.<Long>get(key, countQuery::getAsLong);
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.repository.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 회원 검색 결과 캐시 - 대시보드처럼 같은 조건으로 계속 조회하는 경우 DB 까지 가지 않도록 검색조건(+페이지)을 키로 보관한다.
+ * 캐시에 든 결과는 여러 요청이 같이 보므로 돌려줄때마다 DTO 를 복사한다. (받은 쪽에서 고쳐도 캐시는 그대로)
+ * 회원/팀 쓰기(엔티티 리스너, save, 벌크 update/delete)가 커밋되면 {@link SearchCacheEvictListener} 가 전체를 비운다.
+ */
+@Component
+public class SearchResultCache extends WriteInvalidatedCache {
+
+    public SearchResultCache(@Value("${member.search.result-cache.ttl:5s}") Duration ttl,
+                             @Value("${member.search.result-cache.max-size:1000}") long maxSize) {
+        super(ttl, maxSize);
+    }
+
+    public List<MemberTeamDto> getList(Object key, Supplier<List<MemberTeamDto>> query) {
+        return copy(get(key, () -> Collections.unmodifiableList(new ArrayList<>(query.get()))));
+    }
+
+    public Page<MemberTeamDto> getPage(Object key, Pageable pageable, Supplier<Page<MemberTeamDto>> query) {
+        return get(key == null ? null : pageKey(key, pageable), query).map(MemberTeamDto::copy);
+    }
+
+    private static List<MemberTeamDto> copy(List<MemberTeamDto> cached) {
+        return cached.stream().map(MemberTeamDto::copy).collect(Collectors.toList());
+    }
+
+    //페이지 결과는 조건 + 페이지(번호, 크기, 정렬)로 구분
+    private static Object pageKey(Object key, Pageable pageable) {
+        return Arrays.asList(key, pageable);
+    }
+}
@@ -0,0 +1,54 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import study.querydsl.Entitiy.TeamStats;
+
+/**
+ * 한 트랜잭션 안에서 팀 하나에 일어난 회원 변화량 (커밋 직전에 team_stats 에 한번에 반영)
+ */
+@Getter
+public class TeamStatsChange {
+
+    private long countDelta;
+    private long sumDelta;
+    private Integer addedMin;
+    private Integer addedMax;
+    private Integer removedMin;
+    private Integer removedMax;
+    private boolean teamInserted;
+    private boolean teamDeleted;
+
+    void add(int age) {
+        countDelta++;
+        sumDelta += age;
+        addedMin = addedMin == null ? age : Math.min(addedMin, age);
+        addedMax = addedMax == null ? age : Math.max(addedMax, age);
+    }
+
+    void remove(int age) {
+        countDelta--;
+        sumDelta -= age;
+        removedMin = removedMin == null ? age : Math.min(removedMin, age);
+        removedMax = removedMax == null ? age : Math.max(removedMax, age);
+    }
+
+    void teamInserted() {
+        teamInserted = true;
+    }
+
+    void teamDeleted() {
+        teamDeleted = true;
+    }
+
+    /**
+     * 빠진 회원이 현재 최소/최대 였을수 있으면 증분으로는 알수 없으므로 그 팀만 다시 집계해야 한다.
+     * stats 가 없는데 이번 트랜잭션에서 만든 팀도 아니면 기존 회원이 빠져있으므로 역시 다시 집계
+     */
+    public boolean needsRecompute(TeamStats stats, boolean created) {
+        if (created) {
+            return !teamInserted;
+        }
+        return (removedMin != null && (stats.getMinAge() == null || removedMin <= stats.getMinAge()))
+                || (removedMax != null && (stats.getMaxAge() == null || removedMax >= stats.getMaxAge()));
+    }
+}
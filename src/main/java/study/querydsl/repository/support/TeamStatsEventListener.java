@@ -0,0 +1,196 @@
+package study.querydsl.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.repository.TeamStatsRepository;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * team_stats 증분 갱신 - 하이버네이트 insert/update/delete 이벤트로 회원 변화량을 트랜잭션별로 모아두었다가
+ * 커밋 직전(beforeCommit)에 같은 트랜잭션 안에서 한번에 반영한다.
+ * JPA 엔티티 리스너(@PostUpdate)는 변경 전 값(팀, 나이)을 알수 없어서 하이버네이트 이벤트를 쓴다.
+ * 벌크 update/delete 는 이벤트가 없으므로 {@link BulkWriteEvent} 를 받으면 커밋 직전에 전체를 다시 집계한다.
+ */
+@Slf4j
+@Component
+public class TeamStatsEventListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory emf;
+    private final EntityManager em;
+    private final TeamStatsRepository teamStatsRepository;
+
+    public TeamStatsEventListener(EntityManagerFactory emf, EntityManager em, TeamStatsRepository teamStatsRepository) {
+        this.emf = emf;
+        this.em = em;
+        this.teamStatsRepository = teamStatsRepository;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Long teamId = teamId(event.getPersister(), event.getState());
+            if (teamId != null) {
+                pending().change(teamId).add(age(event.getPersister(), event.getState()));
+            }
+        } else if (event.getEntity() instanceof Team) {
+            pending().change((Long) event.getId()).teamInserted();
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        if (event.getOldState() == null) { //변경 전 값을 모르면 (detached update) 전체 재계산
+            pending().rebuildAll = true;
+            return;
+        }
+        Long oldTeamId = teamId(persister, event.getOldState());
+        Long newTeamId = teamId(persister, event.getState());
+        int oldAge = age(persister, event.getOldState());
+        int newAge = age(persister, event.getState());
+        if (Objects.equals(oldTeamId, newTeamId) && oldAge == newAge) {
+            return;
+        }
+        if (oldTeamId != null) {
+            pending().change(oldTeamId).remove(oldAge);
+        }
+        if (newTeamId != null) {
+            pending().change(newTeamId).add(newAge);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Long teamId = teamId(event.getPersister(), event.getDeletedState());
+            if (teamId != null) {
+                pending().change(teamId).remove(age(event.getPersister(), event.getDeletedState()));
+            }
+        } else if (event.getEntity() instanceof Team) {
+            pending().change((Long) event.getId()).teamDeleted();
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    @EventListener
+    public void onBulkWrite(BulkWriteEvent event) {
+        if (event.getDomainClass() == Member.class || event.getDomainClass() == Team.class) {
+            pending().rebuildAll = true;
+        }
+    }
+
+    /**
+     * 모아둔 변화량을 지금 반영한다. 보통은 커밋 직전에 자동으로 불리고, 롤백되는 테스트처럼 커밋 전에 결과를 봐야할때 직접 부른다.
+     */
+    public void applyPendingChanges() {
+        PendingChanges pending = find();
+        if (pending != null) {
+            pending.apply();
+        }
+    }
+
+    private PendingChanges pending() {
+        PendingChanges pending = find();
+        if (pending == null) {
+            pending = new PendingChanges();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(pending);
+            } else { //스프링 트랜잭션 밖의 쓰기는 반영할 시점이 없으므로 버린다 (rebuild 로 맞춰짐)
+                log.warn("team_stats change outside of a Spring transaction is ignored");
+            }
+        }
+        return pending;
+    }
+
+    private static PendingChanges find() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges) {
+                return (PendingChanges) synchronization;
+            }
+        }
+        return null;
+    }
+
+    private static Long teamId(EntityPersister persister, Object[] state) {
+        Object team = state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) { //프록시를 초기화하지 않고 id 만 꺼낸다
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+
+    private static int age(EntityPersister persister, Object[] state) {
+        return (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+
+        private final Map<Long, TeamStatsChange> changes = new TreeMap<>(); //팀 id 순으로 잠금
+        private boolean rebuildAll;
+
+        TeamStatsChange change(Long teamId) {
+            return changes.computeIfAbsent(teamId, id -> new TeamStatsChange());
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            apply();
+        }
+
+        void apply() {
+            em.flush(); //쓰기지연된 insert/update/delete 를 내보내서 이벤트를 모두 받은뒤 반영
+            if (rebuildAll) {
+                teamStatsRepository.rebuild();
+            } else {
+                teamStatsRepository.apply(new TreeMap<>(changes));
+            }
+            changes.clear();
+            rebuildAll = false;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.repository.support;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.TeamStatsRepository;
+
+/**
+ * team_stats 전체 재계산 배치 - 증분 갱신이 놓친 변경(트랜잭션 밖 쓰기, 직접 SQL 등)을 주기적으로 맞춘다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TeamStatsRebuildJob {
+
+    private final TeamStatsRepository teamStatsRepository;
+
+    @Scheduled(cron = "${member.team-stats.rebuild-cron:0 0 4 * * *}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        int teams = teamStatsRepository.rebuild();
+        log.info("team_stats rebuilt: {} teams in {}ms", teams, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,61 @@
+package study.querydsl.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.config.ReplicaRoutingDataSource;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 회원/팀 쓰기가 커밋되면 통째로 비워지는 검색 캐시의 공통 부분 (Caffeine - W-TinyLFU, 크기 + TTL 제한)
+ * 비우는건 {@link SearchCacheEvictListener} 가 한다.
+ * 복제본에서 읽은 결과는 넣지 않는다 - 비운 직후에도 복제본은 커밋 전 행을 줄수 있어서 TTL 내내 오래된 값이 남는다.
+ * (replica 프로필이면 캐시는 primary 에서 읽은 결과로만 채워짐)
+ */
+public abstract class WriteInvalidatedCache {
+
+    private final Cache<Object, Object> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    protected WriteInvalidatedCache(Duration ttl, long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * key 는 쿼리 결과를 식별할수 있어야함 (보통 normalized 된 검색조건). null 이면 캐시하지 않는다.
+     */
+    @SuppressWarnings("unchecked")
+    protected <V> V get(Object key, Supplier<V> query) {
+        if (key == null || !cacheable()) {
+            return query.get();
+        }
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (V) cached;
+        }
+        long before = generation.get();
+        V value = query.get();
+        // 조회중에 커밋된 쓰기가 있거나 복제본에서 읽었으면 오래된 값일수 있으니 넣지 않는다.
+        if (value != null && generation.get() == before && !ReplicaRoutingDataSource.isReplicaRead()) {
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    public void evictAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    //쓰기 트랜잭션 안에서는 커밋 안된 내 변경분이 결과에 섞이므로 캐시를 읽지도 쓰지도 않는다.
+    private boolean cacheable() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+}
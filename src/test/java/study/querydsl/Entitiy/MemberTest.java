@@ -7,6 +7,8 @@ import org.springframework.test.annotation.Commit;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
 
+import study.querydsl.monitoring.SqlStatementStats;
+
 import javax.persistence.EntityManager;
 
 
@@ -53,4 +55,18 @@ class MemberTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void pooledSequence() {
+        //member 시퀀스는 block-size(기본 50) 건에 한번만 호출된다. 앞 테스트가 블록을 쓰다 남겼을수 있어서 최대 3번
+        SqlStatementStats.start(true);
+        try {
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("member" + i, i));
+            }
+        } finally {
+            SqlStatementStats stats = SqlStatementStats.stop();
+            assertTrue(stats.getCount() <= 3, () -> "sequence calls " + stats.getStatements());
+        }
+    }
+
+}
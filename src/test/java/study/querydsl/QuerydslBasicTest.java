@@ -24,6 +24,7 @@ import com.querydsl.jpa.JPAExpressions;
 
 import static com.querydsl.jpa.JPAExpressions.*;
 import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.monitoring.SqlStatementAssertions.assertStatementCount;
 import static study.querydsl.Entitiy.QMember.member;
 import static study.querydsl.Entitiy.QTeam.team;
 
@@ -353,6 +354,36 @@ public class QuerydslBasicTest {
         assertThat(loaded).as("페치조인미적용").isFalse();
     }
 
+    //페치조인 없이 팀을 쓰면 회원 조회 + 팀 지연로딩 = 쿼리 2번 (회원이 N명이면 N+1)
+    @Test
+    public void fetchJoinNoStatementCount () throws Exception{
+        em.flush();
+        em.clear();
+
+        assertStatementCount(2, () -> {
+            Member findMember = queryFactory
+                    .selectFrom(member)
+                    .where(member.username.eq("member1"))
+                    .fetchOne();
+            findMember.getTeam().getName();
+        });
+    }
+
+    @Test
+    public void fetchJoinUseStatementCount () throws Exception{
+        em.flush();
+        em.clear();
+
+        assertStatementCount(1, () -> {
+            Member findMember = queryFactory
+                    .selectFrom(member)
+                    .join(member.team,team).fetchJoin()
+                    .where(member.username.eq("member1"))
+                    .fetchOne();
+            findMember.getTeam().getName();
+        });
+    }
+
     @Test
     public void fetchJoinUse () throws Exception{
         em.flush();
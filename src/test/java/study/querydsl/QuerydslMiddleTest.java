@@ -21,6 +21,8 @@ import study.querydsl.Entitiy.Team;
 import study.querydsl.dto.MemberDto;
 import study.querydsl.dto.QMemberDto;
 import study.querydsl.dto.UserDto;
+import study.querydsl.dto.support.BeanProjection;
+import study.querydsl.repository.MemberTestRepositroy;
 
 import javax.persistence.EntityManager;
 import java.util.List;
@@ -204,6 +206,26 @@ public class QuerydslMiddleTest {
     }
 
 
+    @Test // 리플렉션 없이 setter 람다로 채우는 방법 (BeanProjection)
+    public void findUserDtoByBeanProjection() throws Exception{
+
+        QMember memberSub = new QMember("memberSub");
+        List<UserDto> result = queryFactory
+                .select(
+                        BeanProjection.bean(UserDto.class
+                                , member.username.as("name")
+                                , ExpressionUtils.as(JPAExpressions
+                                    .select(memberSub.age.max())
+                                        .from(memberSub),"age")
+                        ))
+                .from(member)
+                .fetch();
+
+        assertThat(result).extracting("name").containsExactly("member1", "member2", "member3", "member4");
+        assertThat(result).extracting("age").containsOnly(40);
+    }
+
+
     @Test
     public void findUserDtoByConstructor() throws Exception{ // 생성자를 활용한방법
         List<UserDto> result = queryFactory
@@ -321,9 +343,7 @@ public class QuerydslMiddleTest {
          *
          **/
 
-       long count = queryFactory
-                .update(member)
-                .set(member.username, "비회원")
+       long count = MemberTestRepositroy.setUsername(queryFactory.update(member), "비회원") // username_lower 도 같이
                 .where(member.age.lt(28))
                 .execute();
 
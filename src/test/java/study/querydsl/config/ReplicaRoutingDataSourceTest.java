@@ -0,0 +1,111 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//메모리 H2 두개를 primary, replica 로 쓴다. 복제는 테스트에서 heartbeat 를 직접 복사해서 흉내낸다.
+class ReplicaRoutingDataSourceTest {
+
+    DataSource primary = h2("primary");
+    DataSource replica = h2("replica");
+
+    @BeforeEach
+    public void before() {
+        new JdbcTemplate(primary).execute("create table whoami (name varchar(10)); insert into whoami values ('primary')");
+        new JdbcTemplate(replica).execute("create table whoami (name varchar(10)); insert into whoami values ('replica')");
+    }
+
+    @AfterEach
+    public void after() {
+        new JdbcTemplate(primary).execute("drop all objects");
+        new JdbcTemplate(replica).execute("drop all objects");
+    }
+
+    @Test
+    public void readOnlyTransactionGoesToReplica() {
+        ReplicaHealthChecker checker = new ReplicaHealthChecker(primary, replica, Duration.ZERO);
+        checker.init();
+        Routing routing = new Routing(primary, replica, checker);
+
+        assertThat(checker.isAvailable()).isTrue();
+        assertThat(routing.whoami(true)).isEqualTo("replica");
+        assertThat(routing.whoami(false)).isEqualTo("primary");
+        assertThat(routing.jdbcTemplate.queryForObject("select name from whoami", String.class)).isEqualTo("primary"); //트랜잭션 밖
+    }
+
+    @Test
+    public void replicaDownFallsBackToPrimary() {
+        DataSource down = h2Url("jdbc:h2:tcp://localhost:1/~/nothing");
+        ReplicaHealthChecker checker = new ReplicaHealthChecker(primary, down, Duration.ZERO);
+        checker.init();
+        Routing routing = new Routing(primary, down, checker);
+
+        assertThat(checker.isAvailable()).isFalse();
+        assertThat(routing.whoami(true)).isEqualTo("primary");
+    }
+
+    @Test
+    public void laggingReplicaFallsBackToPrimary() {
+        ReplicaHealthChecker checker = new ReplicaHealthChecker(primary, replica, Duration.ofSeconds(1));
+        checker.init(); //primary 에만 heartbeat 가 있음 (복제 안됨)
+        Routing routing = new Routing(primary, replica, checker);
+
+        assertThat(checker.isAvailable()).isFalse();
+        assertThat(routing.whoami(true)).isEqualTo("primary");
+
+        replicate();
+        checker.check();
+
+        assertThat(checker.isAvailable()).isTrue();
+        assertThat(checker.getLagMillis()).isZero();
+        assertThat(routing.whoami(true)).isEqualTo("replica");
+    }
+
+    //primary 의 heartbeat 를 복제본으로 복사
+    private void replicate() {
+        Long beat = new JdbcTemplate(primary).queryForObject("select beat_at from replica_heartbeat where id = 1", Long.class);
+        JdbcTemplate replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.execute("create table if not exists replica_heartbeat (id int primary key, beat_at bigint not null)");
+        replicaJdbc.update("merge into replica_heartbeat key (id) values (1, ?)", beat);
+    }
+
+    private static DataSource h2(String name) {
+        return h2Url("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+    }
+
+    private static DataSource h2Url(String url) {
+        return new DriverManagerDataSource(url, "sa", "");
+    }
+
+    static class Routing {
+
+        final JdbcTemplate jdbcTemplate;
+        final TransactionTemplate readOnly;
+        final TransactionTemplate readWrite;
+
+        Routing(DataSource primary, DataSource replica, ReplicaHealthChecker checker) {
+            DataSource dataSource = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, checker));
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            jdbcTemplate = new JdbcTemplate(dataSource);
+            readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            readWrite = new TransactionTemplate(transactionManager);
+        }
+
+        String whoami(boolean readOnlyTransaction) {
+            return (readOnlyTransaction ? readOnly : readWrite)
+                    .execute(status -> jdbcTemplate.queryForObject("select name from whoami", String.class));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.TeamStatsRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//JpaTransactionManager + @Transactional(readOnly = true) 리포지토리 메소드가 복제본으로 가는지, 복제본 결과가 캐시에 남지 않는지
+//메모리 H2 두개를 primary, replica 로 쓴다. 복제본에는 검색에 쓰는 컬럼만 만들고 지연된 값을 직접 넣는다.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routingPrimary;DB_CLOSE_DELAY=-1",
+        "spring.jpa.open-in-view=false",
+        "member.datasource.replica.url=jdbc:h2:mem:routingReplica;DB_CLOSE_DELAY=-1",
+        "member.datasource.replica.username=sa",
+        "member.datasource.replica.driver-class-name=org.h2.Driver",
+        "member.datasource.replica.max-lag=0"})
+class ReplicaRoutingJpaTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:routingReplica;DB_CLOSE_DELAY=-1", "sa", ""));
+    TransactionTemplate tx;
+    MemberSearchCondition condition = new MemberSearchCondition(null, "routingTeam", null, null);
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team team = new Team("routingTeam");
+            em.persist(team);
+            em.persist(new Member("routing1", 20, team));
+        });
+
+        //복제가 아직 안넘어온 상태 - 복제본에는 예전 나이(10)
+        replica.execute("create table team (team_id bigint primary key, name varchar(255))");
+        replica.execute("create table member (member_id bigint primary key, username varchar(255), age int not null, team_id bigint)");
+        replica.update("insert into team values (1, 'routingTeam')");
+        replica.update("insert into member values (1, 'routing1', 10, 1)");
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'routing%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name = 'routingTeam'").executeUpdate();
+        });
+        teamStatsRepository.rebuild();
+        replica.execute("drop all objects");
+    }
+
+    @Test
+    public void readOnlyRepositoryMethodsReadReplica() {
+        assertThat(ages(memberRepository.search(condition))).isEqualTo(10);
+        assertThat(ages(memberJpaRepository.searchByWhere(condition))).isEqualTo(10);
+
+        //쓰기 트랜잭션에 참여하면 readOnly 메소드도 primary
+        assertThat(tx.execute(status -> ages(memberJpaRepository.searchByWhere(condition)))).isEqualTo(20);
+    }
+
+    @Test
+    public void replicaResultsAreNotCached() {
+        assertThat(ages(memberRepository.search(condition))).isEqualTo(10);
+        assertThat(ages(memberJpaRepository.searchByWhere(condition))).isEqualTo(10);
+
+        replica.update("update member set age = 20 where username = 'routing1'"); //복제가 따라잡음
+
+        assertThat(ages(memberRepository.search(condition))).isEqualTo(20);
+        assertThat(ages(memberJpaRepository.searchByWhere(condition))).isEqualTo(20);
+    }
+
+    private static int ages(List<MemberTeamDto> result) {
+        assertThat(result).hasSize(1);
+        return result.get(0).getAge();
+    }
+}
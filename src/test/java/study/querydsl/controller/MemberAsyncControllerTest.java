@@ -0,0 +1,204 @@
+package study.querydsl.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.repository.TeamStatsRepository;
+
+import javax.persistence.EntityManager;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//dbExecutor 스레드가 따로 트랜잭션을 열어서 읽으므로 @Transactional 없이 실행하고 만든 데이터는 직접 지운다.
+//스레드 1개 + 큐 1개로 줄여서 풀이 꽉 찬 상황을 만든다.
+@SpringBootTest(properties = {
+        "member.async.db-executor.pool-size=1",
+        "member.async.db-executor.queue-capacity=1",
+        "member.async.db-executor.rejection-policy=ABORT"})
+@AutoConfigureMockMvc
+class MemberAsyncControllerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    @Qualifier("dbExecutor")
+    ThreadPoolTaskExecutor dbExecutor;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team team = new Team("asyncTeam");
+            em.persist(team);
+            em.persist(new Member("async1", 10, team));
+            em.persist(new Member("async2", 20, team));
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'async%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name = 'asyncTeam'").executeUpdate();
+        });
+        teamStatsRepository.rebuild();
+    }
+
+    @Test
+    public void searchV1() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/async/v1/members").param("teamName", "asyncTeam"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].teamName").value("asyncTeam"));
+    }
+
+    @Test
+    public void searchV2() throws Exception {
+        MvcResult page = mockMvc.perform(get("/async/v2/members").param("teamName", "asyncTeam").param("size", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(page))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.totalElements").value(2));
+
+        MvcResult slice = mockMvc.perform(get("/async/v2/members").param("teamName", "asyncTeam").param("size", "1")
+                        .param("withTotal", "false"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(slice))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    public void searchV3() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/async/v3/members").param("teamName", "asyncTeam").param("size", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.totalElements").value(2));
+    }
+
+    @Test
+    public void saturatedExecutorRejectsWith503() throws Exception {
+        double rejectedBefore = rejectedCount();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            occupyThread(release);
+            dbExecutor.execute(() -> await(release)); //큐
+
+            mockMvc.perform(get("/async/v1/members").param("teamName", "asyncTeam"))
+                    .andExpect(request().asyncNotStarted())
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        } finally {
+            release.countDown();
+        }
+
+        assertThat(rejectedCount()).isEqualTo(rejectedBefore + 1);
+    }
+
+    @Test
+    public void timeoutCancelsQueuedSearch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            occupyThread(release);
+
+            MvcResult mvcResult = mockMvc.perform(get("/async/v1/members").param("teamName", "asyncTeam"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            Future<?> queued = (Future<?>) dbExecutor.getThreadPoolExecutor().getQueue().peek();
+            assertThat(queued).isNotNull();
+
+            //MockMvc 는 타임아웃을 직접 발생시키지 않으므로 서블릿 컨테이너 대신 리스너를 호출
+            MockAsyncContext asyncContext = (MockAsyncContext) mvcResult.getRequest().getAsyncContext();
+            for (AsyncListener listener : asyncContext.getListeners()) {
+                listener.onTimeout(new AsyncEvent(asyncContext));
+            }
+
+            assertThat(queued.isCancelled()).isTrue();
+            mockMvc.perform(asyncDispatch(mvcResult))
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void executorMetrics() {
+        assertThat(meterRegistry.get("executor.active").tag("name", "dbExecutor").gauge()).isNotNull();
+        assertThat(meterRegistry.get("executor.queued").tag("name", "dbExecutor").gauge()).isNotNull();
+        assertThat(meterRegistry.get("executor.completed").tag("name", "dbExecutor").functionCounter()).isNotNull();
+        assertThat(meterRegistry.get("executor.rejected").tag("name", "countQueryExecutor").functionCounter()).isNotNull();
+    }
+
+    private double rejectedCount() {
+        return meterRegistry.get("executor.rejected").tag("name", "dbExecutor").functionCounter().count();
+    }
+
+    //스레드가 작업을 가져갈때까지 기다려야 다음 작업이 큐에 남는다
+    private void occupyThread(CountDownLatch release) throws InterruptedException {
+        dbExecutor.execute(() -> await(release));
+        while (dbExecutor.getActiveCount() < 1 || !dbExecutor.getThreadPoolExecutor().getQueue().isEmpty()) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
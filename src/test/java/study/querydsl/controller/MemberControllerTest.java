@@ -0,0 +1,56 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.data.web.pageable.max-page-size=50")
+@AutoConfigureMockMvc
+@Transactional
+class MemberControllerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @BeforeEach
+    public void before() {
+        Team team = new Team("keysetTeam");
+        em.persist(team);
+        for (int i = 0; i < 3; i++) {
+            em.persist(new Member("keyset" + i, 10 + i, team));
+        }
+        em.flush();
+    }
+
+    @Test
+    public void keysetPage() throws Exception {
+        mockMvc.perform(get("/v4/members").param("teamName", "keysetTeam").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2));
+    }
+
+    @Test
+    public void keysetSizeOutOfRange() throws Exception {
+        for (String size : new String[]{"0", "-1", "51"}) {
+            mockMvc.perform(get("/v4/members").param("teamName", "keysetTeam").param("size", size))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(get("/v4/members").param("teamName", "keysetTeam").param("size", "50"))
+                .andExpect(status().isOk());
+    }
+}
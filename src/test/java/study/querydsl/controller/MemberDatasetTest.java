@@ -0,0 +1,63 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberDatasetTest {
+
+    @Test
+    public void sameSeedSameRows() {
+        GenerateMemberProperties properties = properties();
+
+        assertThat(rows(new MemberDataset(properties), 1)).isEqualTo(rows(new MemberDataset(properties), 1));
+
+        properties.setSeed(7);
+        assertThat(rows(new MemberDataset(properties), 1)).isNotEqualTo(rows(new MemberDataset(properties()), 1));
+    }
+
+    @Test
+    public void chunksCoverAllIds() {
+        MemberDataset dataset = new MemberDataset(properties());
+
+        assertThat(dataset.chunks()).isEqualTo(3);
+        List<String> lastChunk = rows(dataset, 2);
+        assertThat(lastChunk).hasSize(500);
+        assertThat(lastChunk.get(lastChunk.size() - 1)).startsWith("2500,member2500,member2500,");
+    }
+
+    @Test
+    public void skewedTeamsAndAgeRange() {
+        GenerateMemberProperties properties = properties();
+        properties.setTeamSkew(1.5);
+        properties.setAgeDistribution(GenerateMemberProperties.AgeDistribution.NORMAL);
+
+        Map<Long, Integer> teamSizes = new HashMap<>();
+        new MemberDataset(properties).chunk(0, (id, username, usernameLower, age, teamId) -> {
+            teamSizes.merge(teamId, 1, Integer::sum);
+            assertThat(age).isBetween(properties.getAgeMin(), properties.getAgeMax());
+        });
+
+        assertThat(teamSizes.get(1L)).isGreaterThan(teamSizes.getOrDefault(10L, 0) * 10); //앞쪽 팀이 훨씬 큼
+    }
+
+    private static GenerateMemberProperties properties() {
+        GenerateMemberProperties properties = new GenerateMemberProperties();
+        properties.setTeams(10);
+        properties.setMembers(2500);
+        properties.setChunkSize(1000);
+        return properties;
+    }
+
+    private static List<String> rows(MemberDataset dataset, int chunk) {
+        List<String> rows = new ArrayList<>();
+        dataset.chunk(chunk, (id, username, usernameLower, age, teamId) ->
+                rows.add(id + "," + username + "," + usernameLower + "," + age + "," + teamId));
+        return rows;
+    }
+}
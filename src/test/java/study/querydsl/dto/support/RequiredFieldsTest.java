@@ -0,0 +1,58 @@
+package study.querydsl.dto.support;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UserDto;
+
+import java.lang.reflect.Field;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequiredFieldsTest {
+
+    RequiredFields memberTeamRequired = RequiredFields.of(MemberTeamDto.class, "username", "age", "teamName");
+
+    @Test
+    public void memberTeamDto() throws Exception{
+        assertThat(memberTeamRequired.check(new MemberTeamDto(null, "member1", 10, null, "teamA"))).isTrue();
+        assertThat(memberTeamRequired.check(new MemberTeamDto(null, "member1", 10, null, "  "))).isFalse();
+        assertThat(memberTeamRequired.check(new MemberTeamDto(null, null, 10, null, "teamA"))).isFalse();
+    }
+
+    @Test
+    public void memberDtoAndUserDto() throws Exception{
+        assertThat(RequiredFields.of(MemberDto.class, "username", "age").check(new MemberDto("member1", 10))).isTrue();
+        assertThat(RequiredFields.of(MemberDto.class, "username").check(new MemberDto("", 10))).isFalse();
+        assertThat(RequiredFields.check(new UserDto("user1", 10), new String[]{"name", "age"})).isTrue();
+        assertThat(RequiredFields.check(new UserDto(null, 10), new String[]{"name", "age"})).isFalse();
+    }
+
+    @Test
+    public void sameResultAsReflection() throws Exception{
+        String[] names = {"memberId", "username", "age", "teamId", "teamName"};
+        MemberTeamDto[] dtos = {
+                new MemberTeamDto(1L, "mm", 1, 1L, "tema1"),
+                new MemberTeamDto(null, "mm", 1, 1L, "tema1"),
+                new MemberTeamDto(1L, " ", 1, 1L, "tema1"),
+        };
+        for (MemberTeamDto dto : dtos) {
+            assertThat(RequiredFields.check(dto, names)).isEqualTo(chkParamByReflection(dto, names));
+        }
+    }
+
+    //기존 MemberJpaRepository.ChkParam 구현
+    private static boolean chkParamByReflection(Object obj, String[] valueNames) throws IllegalAccessException {
+        for (Field field : obj.getClass().getDeclaredFields()) {
+            field.setAccessible(true);
+            for (String str : valueNames) {
+                if (field.getName().equals(str)) {
+                    if (field.get(obj) == null || field.get(obj).toString().trim().equals("")) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,38 @@
+package study.querydsl.monitoring;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 테스트용 - 블록 안에서 실행된 SQL 수를 검사한다. (N+1 회귀 방지)
+ * p6spy 로 감싼 DataSource 와 {@link SqlStatementListener} 빈이 있는 스프링 테스트에서만 동작함
+ * 쓰기 지연된 insert 가 같이 세어지지 않도록 보통 em.flush() 후에 부른다.
+ */
+public final class SqlStatementAssertions {
+
+    private SqlStatementAssertions() {
+    }
+
+    public static void assertStatementCount(int expected, Runnable block) {
+        assertStatementCount(expected, () -> {
+            block.run();
+            return null;
+        });
+    }
+
+    public static <T> T assertStatementCount(int expected, Supplier<T> block) {
+        SqlStatementStats.start(true);
+        T result;
+        SqlStatementStats stats;
+        try {
+            result = block.get();
+        } finally {
+            stats = SqlStatementStats.stop();
+        }
+        assertThat(stats.getCount())
+                .as("executed statements %s", stats.getStatements())
+                .isEqualTo(expected);
+        return result;
+    }
+}
@@ -0,0 +1,53 @@
+package study.querydsl.monitoring;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlStatementStatsTest {
+
+    @AfterEach
+    public void after() {
+        SqlStatementStats.stop();
+    }
+
+    @Test
+    public void keepsOnlySlowestWithoutStatementList() {
+        List<String> built = new ArrayList<>();
+        SqlStatementStats stats = SqlStatementStats.start(true, false);
+
+        stats.record(3_000_000, sql("select 1", built));
+        stats.record(1_000_000, sql("select 2", built)); //더 빠름 -> 문자열을 만들지 않음
+        stats.record(5_000_000, sql("select 3", built));
+
+        assertThat(stats.getCount()).isEqualTo(3);
+        assertThat(stats.getTotalMillis()).isEqualTo(9);
+        assertThat(stats.getSlowestSql()).isEqualTo("select 3");
+        assertThat(stats.getSlowestMillis()).isEqualTo(5);
+        assertThat(stats.getStatements()).isEmpty();
+        assertThat(built).containsExactly("select 1", "select 3");
+    }
+
+    @Test
+    public void keepsStatementsWhenAsked() {
+        SqlStatementStats stats = SqlStatementStats.start(true);
+
+        stats.record(1_000_000, () -> "select 1");
+        stats.record(2_000_000, () -> "select 2");
+
+        assertThat(stats.getStatements()).containsExactly("select 1", "select 2");
+        assertThat(stats.getSlowestSql()).isEqualTo("select 2");
+    }
+
+    private static Supplier<String> sql(String sql, List<String> built) {
+        return () -> {
+            built.add(sql);
+            return sql;
+        };
+    }
+}
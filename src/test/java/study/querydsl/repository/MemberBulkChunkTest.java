@@ -0,0 +1,176 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.repository.support.BulkProgress;
+import study.querydsl.repository.support.BulkWriteEvent;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+//청크마다 커밋되는걸 확인해야 해서 @Transactional 없이 실행하고 만든 데이터는 직접 지운다.
+@SpringBootTest
+@RecordApplicationEvents
+class MemberBulkChunkTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberTestRepositroy memberTestRepositroy;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    ApplicationEvents events;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("bulkTeamA");
+            Team teamB = new Team("bulkTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 25; i++) {
+                em.persist(new Member("bulk" + i, i, teamA));
+            }
+            for (int i = 25; i < 30; i++) {
+                em.persist(new Member("bulk" + i, i, teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'bulk%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'bulkTeam%'").executeUpdate();
+        });
+        teamStatsRepository.rebuild();
+    }
+
+    @Test
+    public void updateInChunks() {
+        List<BulkProgress> progress = new ArrayList<>();
+
+        long affected = memberTestRepositroy.bulkAddAgeByTeamName("bulkTeamA", 100, 10, progress::add);
+
+        assertThat(affected).isEqualTo(25);
+        assertThat(progress).hasSizeGreaterThanOrEqualTo(3);
+        assertThat(progress).allMatch(chunk -> chunk.getAffected() <= 10);
+        assertThat(progress.get(progress.size() - 1).isLast()).isTrue();
+        assertThat(progress.get(progress.size() - 1).getTotalAffected()).isEqualTo(25);
+
+        List<Integer> ages = tx.execute(status -> em
+                .createQuery("select m.age from Member m where m.username like 'bulk%' order by m.age", Integer.class)
+                .getResultList());
+        assertThat(ages).hasSize(30);
+        assertThat(ages.subList(0, 5)).containsExactly(25, 26, 27, 28, 29); //teamB 는 그대로
+        assertThat(ages.subList(5, 30)).allMatch(age -> age >= 100);
+    }
+
+    //대상 행 id 가 듬성듬성해도 청크는 대상 행수로만 나뉜다 (빈 청크/빈 트랜잭션 없음)
+    @Test
+    public void sparseIdsHaveNoEmptyChunks() {
+        tx.executeWithoutResult(status -> {
+            Team sparse = new Team("bulkTeamSparse");
+            Team other = new Team("bulkTeamOther");
+            em.persist(sparse);
+            em.persist(other);
+            for (int i = 0; i < 20; i++) {
+                em.persist(new Member("bulkSparse" + i, i, i % 4 == 0 ? sparse : other));
+            }
+        });
+        List<BulkProgress> progress = new ArrayList<>();
+
+        long affected = memberTestRepositroy.bulkAddAgeByTeamName("bulkTeamSparse", 100, 2, progress::add);
+
+        assertThat(affected).isEqualTo(5);
+        assertThat(progress).extracting(BulkProgress::getAffected).containsExactly(2L, 2L, 1L);
+        assertThat(progress).extracting(BulkProgress::isLast).containsExactly(false, false, true);
+        assertThat(progress).allMatch(chunk -> chunk.getChunks() == 3);
+    }
+
+    //벌크 update 로 이름을 바꿔도 username_lower 가 같이 바뀌어야 대소문자 무시 검색에 걸린다
+    @Test
+    public void bulkRenameKeepsUsernameLower() {
+        long affected = memberTestRepositroy.bulkRenameByTeamName("bulkTeamB", "bulkRenamed", 2, progress -> { });
+
+        assertThat(affected).isEqualTo(5);
+        List<String> lower = tx.execute(status -> em
+                .createQuery("select m.usernameLower from Member m where m.team.name = 'bulkTeamB'", String.class)
+                .getResultList());
+        assertThat(lower).hasSize(5).containsOnly("bulkrenamed");
+    }
+
+    @Test
+    public void deleteInChunks() {
+        long affected = memberTestRepositroy.bulkDeleteByAgeLt(20, "bulk", 7, progress -> { }); //공유 DB 라 픽스처만
+
+        assertThat(affected).isEqualTo(20);
+        Long remaining = tx.execute(status -> em
+                .createQuery("select count(m) from Member m where m.username like 'bulk%'", Long.class)
+                .getSingleResult());
+        assertThat(remaining).isEqualTo(10);
+    }
+
+    //중간 청크가 실패해도 앞에서 커밋된 청크만큼 BulkWriteEvent 를 발행한다 (team_stats, 컬럼형 스냅샷 다시 계산)
+    //실패한 뒤의 청크는 실행되지 않았으므로 completed=false
+    @Test
+    public void publishesBulkWriteWhenChunkFails() {
+        List<BulkProgress> progress = new ArrayList<>();
+
+        assertThatThrownBy(() -> memberTestRepositroy.bulkAddAgeByTeamName("bulkTeamA", 100, 10, chunk -> {
+            progress.add(chunk);
+            if (chunk.getChunk() == 2) {
+                throw new IllegalStateException("stop");
+            }
+        })).hasMessage("stop");
+
+        assertThat(events.stream(BulkWriteEvent.class))
+                .extracting(BulkWriteEvent::getAffected, BulkWriteEvent::isCompleted)
+                .containsExactly(tuple(20L, false));
+        assertThat(progress.get(1).getTotalAffected()).isEqualTo(20);
+        Long changed = tx.execute(status -> em
+                .createQuery("select count(m) from Member m where m.team.name = 'bulkTeamA' and m.age >= 100", Long.class)
+                .getSingleResult());
+        assertThat(changed).isEqualTo(20); //커밋된 두 청크만 바뀜
+    }
+
+    @Test
+    public void completedBulkWriteEvent() {
+        memberTestRepositroy.bulkAddAgeByTeamName("bulkTeamA", 100, 10, progress -> { });
+
+        assertThat(events.stream(BulkWriteEvent.class))
+                .extracting(BulkWriteEvent::getAffected, BulkWriteEvent::isCompleted)
+                .containsExactly(tuple(25L, true));
+    }
+
+    @Test
+    public void notInsideTransaction() {
+        assertThatThrownBy(() -> tx.executeWithoutResult(status ->
+                memberTestRepositroy.bulkDeleteByAgeLt(20, "bulk", 10, progress -> { })))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,151 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//전문검색(q)을 리포지토리/API 로 확인 - FTL 함수가 앱 JVM 에서 돌도록 메모리 H2 를 쓰고,
+//트리거가 커밋된 행을 인덱싱하므로 @Transactional 없이 실행하고 만든 데이터는 직접 지운다.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fulltextsearch;DB_CLOSE_DELAY=-1",
+        "member.fulltext.enabled=true"})
+@AutoConfigureMockMvc
+class MemberFullTextSearchTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team red = new Team("red dragons");
+            Team blue = new Team("blue whales");
+            em.persist(red);
+            em.persist(blue);
+            em.persist(new Member("kim minsu", 10, red));
+            em.persist(new Member("lee dragon", 20, blue));
+            em.persist(new Member("park", 30, blue));
+            em.persist(new Member("choi minsu", 40));
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m").executeUpdate();
+            em.createQuery("delete from Team t").executeUpdate();
+        });
+        teamStatsRepository.rebuild();
+    }
+
+    @Test
+    public void rankedByScore() {
+        MemberSearchCondition condition = q("minsu kim");
+
+        //두 단어가 다 맞는 회원이 먼저
+        assertThat(memberRepository.search(condition))
+                .extracting(MemberTeamDto::getUsername)
+                .containsExactly("kim minsu", "choi minsu");
+        assertThat(memberJpaRepository.searchByWhere(condition))
+                .extracting(MemberTeamDto::getUsername)
+                .containsExactly("kim minsu", "choi minsu");
+    }
+
+    @Test
+    public void teamNameMatchesAllTeamMembers() {
+        assertThat(memberRepository.search(q("whales")))
+                .extracting(MemberTeamDto::getUsername)
+                .containsExactly("lee dragon", "park");
+    }
+
+    @Test
+    public void combinedWithOtherConditions() {
+        MemberSearchCondition condition = q("whales");
+        condition.setAgeGoe(25);
+
+        assertThat(memberRepository.search(condition)).extracting(MemberTeamDto::getUsername).containsExactly("park");
+        assertThat(memberJpaRepository.searchByWhere(condition)).extracting(MemberTeamDto::getUsername).containsExactly("park");
+    }
+
+    @Test
+    public void pageCountMatchesContent() {
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(q("whales"), PageRequest.of(0, 1));
+
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    public void pagesFollowScore() {
+        //점수순(choi minsu 가 먼저)과 id 순(kim minsu 가 먼저)이 다르다
+        MemberSearchCondition condition = q("choi minsu");
+
+        assertThat(memberRepository.searchPageSimple(condition, PageRequest.of(0, 1)).getContent())
+                .extracting(MemberTeamDto::getUsername).containsExactly("choi minsu");
+        assertThat(memberRepository.searchPageSimple(condition, PageRequest.of(1, 1)).getContent())
+                .extracting(MemberTeamDto::getUsername).containsExactly("kim minsu");
+        assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(1, 1)).getContent())
+                .extracting(MemberTeamDto::getUsername).containsExactly("kim minsu");
+        assertThat(memberRepository.searchSlice(condition, PageRequest.of(0, 1)).getContent())
+                .extracting(MemberTeamDto::getUsername).containsExactly("choi minsu");
+    }
+
+    @Test
+    public void operatorWordIsSearchedAsText() throws Exception {
+        mockMvc.perform(get("/v1/members").param("q", "AND"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+    }
+
+    @Test
+    public void reindexEndpoint() throws Exception {
+        mockMvc.perform(post("/v1/members/fulltext/reindex"))
+                .andExpect(status().isNoContent());
+
+        assertThat(memberRepository.search(q("park"))).extracting(MemberTeamDto::getUsername).containsExactly("park");
+    }
+
+    private static MemberSearchCondition q(String q) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setQ(q);
+        return condition;
+    }
+}
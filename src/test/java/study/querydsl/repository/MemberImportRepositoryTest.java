@@ -0,0 +1,161 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.dto.MemberImportResult;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//배치마다 새 트랜잭션으로 커밋되므로 @Transactional 없이 실행하고 만든 데이터는 직접 지운다.
+@SpringBootTest(properties = "member.import.batch-size=2")
+class MemberImportRepositoryTest {
+
+    @Autowired
+    MemberImportRepository memberImportRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'import%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'importTeam%'").executeUpdate();
+        });
+        teamStatsRepository.rebuild();
+    }
+
+    @Test
+    public void importCsv() throws Exception{
+        String csv = "username,age,teamName\n"
+                + "import1,10,importTeamA\n"
+                + "import2,20,importTeamA\n"
+                + ",30,importTeamB\n"          // username 없음 -> skip
+                + "import4,40,importTeamB\n";
+
+        MemberImportResult result = memberImportRepository.importMembers(
+                new BufferedReader(new StringReader(csv)), MemberImportRepository.Format.CSV);
+
+        assertThat(result.getRows()).isEqualTo(3);
+        assertThat(result.getSkipped()).isEqualTo(1);
+        assertThat(result.getTeamsCreated()).isEqualTo(2);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("importTeamA");
+        List<MemberTeamDto> teamA = memberJpaRepository.searchByWhere(condition);
+        assertThat(teamA).extracting("username").containsExactly("import1", "import2");
+    }
+
+    @Test
+    public void importNdjson() throws Exception{
+        String ndjson = "{\"username\":\"import1\",\"age\":10,\"teamName\":\"importTeamA\"}\n"
+                + "{\"username\":\"import2\",\"age\":20,\"teamName\":\"importTeamA\"}\n";
+
+        MemberImportResult result = memberImportRepository.importMembers(
+                new BufferedReader(new StringReader(ndjson)), MemberImportRepository.Format.NDJSON);
+
+        assertThat(result.getRows()).isEqualTo(2);
+        assertThat(result.getTeamsCreated()).isEqualTo(1);
+    }
+
+    @Test
+    public void invalidLinesAreSkipped() throws Exception{
+        String csv = "username,age,teamName\n"
+                + "import1,10,importTeamA\n"
+                + "import2,twenty,importTeamA\n" // 숫자 아님
+                + "import3,30,importTeamA\n";
+        String ndjson = "{\"username\":\"import4\",\"age\":40,\"teamName\":\"importTeamA\"}\n"
+                + "{\"username\":\"import5\",\n"  // 깨진 JSON
+                + "{\"username\":\"import6\",\"age\":\"x\"}\n";
+
+        MemberImportResult csvResult = memberImportRepository.importMembers(
+                new BufferedReader(new StringReader(csv)), MemberImportRepository.Format.CSV);
+        MemberImportResult ndjsonResult = memberImportRepository.importMembers(
+                new BufferedReader(new StringReader(ndjson)), MemberImportRepository.Format.NDJSON);
+
+        assertThat(csvResult.getRows()).isEqualTo(2);
+        assertThat(csvResult.getInvalid()).isEqualTo(1);
+        assertThat(ndjsonResult.getRows()).isEqualTo(1);
+        assertThat(ndjsonResult.getInvalid()).isEqualTo(2);
+        assertThat(memberNames()).containsExactlyInAnyOrder("import1", "import3", "import4");
+    }
+
+    @Test
+    public void rowsWithoutTeamAreImportedTeamLess() throws Exception{
+        String csv = "username,age,teamName\n"
+                + "import1,10,\n"
+                + "import2,20,importTeamA\n"
+                + "import3,30,\n";
+
+        MemberImportResult result = memberImportRepository.importMembers(
+                new BufferedReader(new StringReader(csv)), MemberImportRepository.Format.CSV);
+
+        assertThat(result.getRows()).isEqualTo(3);
+        assertThat(result.getSkipped()).isZero();
+        assertThat(result.getTeamsCreated()).isEqualTo(1);
+        List<Member> teamLess = tx.execute(status -> em
+                .createQuery("select m from Member m where m.username like 'import%' and m.team is null", Member.class)
+                .getResultList());
+        assertThat(teamLess).extracting(Member::getUsername).containsExactlyInAnyOrder("import1", "import3");
+    }
+
+    @Test
+    public void dbErrorStopsAtFailedBatch() throws Exception{
+        String tooLong = "import3" + String.join("", Collections.nCopies(300, "x")); // varchar(255) 초과
+        String csv = "username,age,teamName\n"
+                + "import1,10,importTeamA\n"
+                + "import2,20,importTeamB\n"
+                + tooLong + ",30,importTeamC\n"  // 두번째 배치 - importTeamC 도 같이 롤백
+                + "import4,40,importTeamC\n"
+                + "import5,50,importTeamA\n";
+
+        MemberImportResult result = memberImportRepository.importMembers(
+                new BufferedReader(new StringReader(csv)), MemberImportRepository.Format.CSV);
+
+        assertThat(result.getRows()).isEqualTo(2);
+        assertThat(result.getTeamsCreated()).isEqualTo(2); //롤백된 importTeamC 는 세지 않는다
+        assertThat(result.getFailedFromLine()).isEqualTo(4);
+        assertThat(result.getFailedToLine()).isEqualTo(5);
+        assertThat(result.getError()).isNotNull();
+        assertThat(memberNames()).containsExactlyInAnyOrder("import1", "import2");
+        assertThat(tx.execute(status -> em
+                .createQuery("select count(t) from Team t where t.name = 'importTeamC'", Long.class)
+                .getSingleResult())).isZero();
+    }
+
+    private List<String> memberNames() {
+        return tx.execute(status -> em
+                .createQuery("select m.username from Member m where m.username like 'import%'", String.class)
+                .getResultList());
+    }
+}
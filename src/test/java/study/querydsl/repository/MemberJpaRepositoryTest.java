@@ -13,6 +13,7 @@ import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
@@ -125,7 +126,50 @@ class MemberJpaRepositoryTest {
         List<MemberTeamDto> result = memberJpaRepository.searchByWhere(condition);
 
         assertThat(result).extracting("username").containsExactly("member4");
+        assertThat(memberJpaRepository.searchByTemplate(condition)).isEqualTo(result); //템플릿도 같은 결과
 
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void streamTest() throws Exception{
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition =new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        long count = memberJpaRepository.streamByWhere(condition, 1, result::add);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(result).extracting("username").containsExactly("member3", "member4");
+    }
+
+    //전문검색이 꺼져있으면(테스트 기본값) q 는 회원명/팀명 like '%q%' (대소문자 무시)
+    @Test
+    public void fullTextFallbackLike() throws Exception{
+        Team team = new Team("fallbackWhales");
+        em.persist(team);
+        em.persist(new Member("fallbackKim", 10, team));
+        em.persist(new Member("fallbackLee", 20));
+        em.persist(new Member("fallbackPark", 30));
+
+        MemberSearchCondition byTeam = new MemberSearchCondition();
+        byTeam.setQ("WHALES");
+        MemberSearchCondition byUsername = new MemberSearchCondition();
+        byUsername.setQ("backlee");
+        byUsername.setAgeLoe(20);
+
+        assertThat(memberJpaRepository.searchByWhere(byTeam)).extracting("username").containsExactly("fallbackKim");
+        assertThat(memberJpaRepository.searchByWhere(byUsername)).extracting("username").containsExactly("fallbackLee");
+    }
+}
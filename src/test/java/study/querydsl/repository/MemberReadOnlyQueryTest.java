@@ -0,0 +1,145 @@
+package study.querydsl.repository;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.support.QueryDsl4RepositorySupport;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.Entitiy.QMember.member;
+
+//읽기전용 트랜잭션이 따로 시작되어야 해서 @Transactional 없이 실행하고 만든 데이터는 직접 지운다.
+@SpringBootTest
+@Import(MemberReadOnlyQueryTest.MemberQueries.class)
+class MemberReadOnlyQueryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    MemberQueries memberQueries;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberTestRepositroy memberTestRepositroy;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    TransactionTemplate tx;
+    TransactionTemplate readOnlyTx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        tx.executeWithoutResult(status -> {
+            Team team = new Team("readOnlyTeam");
+            em.persist(team);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("readOnly" + i, i, team));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'readOnly%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'readOnlyTeam'").executeUpdate();
+        });
+        teamStatsRepository.rebuild();
+    }
+
+    //읽기전용 트랜잭션 - 스프링(HibernateJpaDialect)이 세션을 read-only/MANUAL 로 바꿔두므로 힌트가 없어도 같은 결과
+    @Test
+    public void readOnlyTransactionLoadsReadOnlyEntities() {
+        MemberSearchCondition condition = new MemberSearchCondition(null, "readOnlyTeam", null, null);
+
+        readOnlyTx.executeWithoutResult(status -> {
+            Page<Member> page = memberTestRepositroy.searchPageByApplyPage(condition, PageRequest.of(0, 5));
+
+            assertThat(page.getContent()).hasSize(5);
+            assertThat(page.getTotalElements()).isEqualTo(10);
+            Session session = em.unwrap(Session.class);
+            assertThat(page.getContent()).allMatch(session::isReadOnly);
+
+            page.getContent().get(0).setUsername("readOnlyChanged"); //스냅샷이 없으니 반영되지 않는다
+        });
+
+        Long changed = tx.execute(status -> em
+                .createQuery("select count(m) from Member m where m.username = 'readOnlyChanged'", Long.class)
+                .getSingleResult());
+        assertThat(changed).isZero();
+    }
+
+    //트랜잭션 없이 EntityManager 만 열려있을때(OSIV) - 스프링이 세션을 read-only 로 바꿔주지 않으므로 힌트가 있어야 read-only
+    @Test
+    public void readOnlyHintWithoutTransaction() {
+        EntityManager osiv = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(osiv));
+        try {
+            Session session = osiv.unwrap(Session.class);
+
+            assertThat(memberQueries.readOnly()).hasSize(10).allMatch(session::isReadOnly);
+
+            osiv.clear();
+            assertThat(memberQueries.managed()).hasSize(10).noneMatch(session::isReadOnly);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            osiv.close();
+        }
+    }
+
+    @Test
+    public void writeTransactionKeepsManagedEntities() {
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("readOnly10", 10)); //flush 전
+
+            Session session = em.unwrap(Session.class);
+            assertThat(memberTestRepositroy.basicSelectFrom())
+                    .filteredOn(m -> m.getUsername().startsWith("readOnly"))
+                    .hasSize(11) //쿼리 전에 flush 됨
+                    .noneMatch(session::isReadOnly);
+        });
+    }
+
+    //기본값(readOnlyByDefault=false) 리포지토리에서 selectFromReadOnly 를 직접 쓰는 경우
+    public static class MemberQueries extends QueryDsl4RepositorySupport {
+
+        public MemberQueries() {
+            super(Member.class);
+        }
+
+        public List<Member> readOnly() {
+            return selectFromReadOnly(member).where(member.username.startsWith("readOnly")).fetch();
+        }
+
+        public List<Member> managed() {
+            return selectFrom(member).where(member.username.startsWith("readOnly")).fetch();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import study.querydsl.Entitiy.Member;
 import study.querydsl.Entitiy.Team;
 import study.querydsl.dto.MemberSearchCondition;
@@ -149,4 +150,63 @@ class MemberRepositoryTest {
 
 
 
-}
\ No newline at end of file
+    @Test
+    public void searchSlice() throws Exception{
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 30, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition =new MemberSearchCondition();
+
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, null, 3);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(first.getContent()).extracting("username").containsExactly("member1","member2","member3");
+
+        Long lastMemberId = first.getContent().get(2).getMemberId();
+        Slice<MemberTeamDto> second = memberRepository.searchSlice(condition, lastMemberId, 3);
+        assertThat(second.hasNext()).isFalse();
+        assertThat(second.getContent()).extracting("username").containsExactly("member4");
+    }
+
+    @Test
+    public void searchSliceWithoutCount() throws Exception{
+
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 30, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition =new MemberSearchCondition();
+
+        Slice<MemberTeamDto> result = memberRepository.searchSlice(condition, PageRequest.of(0, 3));
+        assertThat(result.hasNext()).isTrue();
+        assertThat(result.getContent()).extracting("username").containsExactly("member1","member2","member3");
+
+        Slice<Member> last = memberTestRepositroy.applySlice(condition, PageRequest.of(1, 3));
+        assertThat(last.hasNext()).isFalse();
+        assertThat(last.getContent()).extracting("username").containsExactly("member4");
+    }
+
+}
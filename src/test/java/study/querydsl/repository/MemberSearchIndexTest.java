@@ -0,0 +1,146 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.monitoring.SqlStatementStats;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 검색조건 16가지 조합(조건 없음 제외)이 모두 인덱스를 타는지 H2 EXPLAIN 으로 검사
+ * 엔티티의 @Table(indexes) 나 검색 쿼리가 바뀌어서 풀스캔(tableScan)으로 떨어지면 실패한다.
+ * 회원명 앞부분 / 대소문자 무시 검색도 같이 검사
+ * Querydsl 쿼리도 검사해야 하므로 템플릿 라우팅은 끄고, 템플릿은 searchByTemplate 으로 따로 검사한다.
+ */
+@SpringBootTest(properties = "member.search.query-templates.enabled=false")
+@Transactional
+class MemberSearchIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 20; i++) {
+            em.persist(new Member("member" + i, 10 + i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    static IntStream shapes() {
+        return IntStream.range(1, 16); // 0(조건 없음)은 전체 조회라 제외
+    }
+
+    //조건 조합별 JPQL 템플릿 (searchByTemplate)
+    @ParameterizedTest(name = "shape {0}")
+    @MethodSource("shapes")
+    public void templateSearchUsesIndex(int shape) throws Exception{
+        MemberSearchCondition condition = condition(shape);
+
+        assertNoTableScan(captureSelects(() -> memberJpaRepository.searchByTemplate(condition)));
+    }
+
+    //Querydsl where 파라미터 (search, searchByWhere)
+    @ParameterizedTest(name = "shape {0}")
+    @MethodSource("shapes")
+    public void querydslListSearchUsesIndex(int shape) throws Exception{
+        MemberSearchCondition condition = condition(shape);
+
+        assertNoTableScan(captureSelects(() -> memberRepository.search(condition)));
+        assertNoTableScan(captureSelects(() -> memberJpaRepository.searchByBuilder(condition)));
+    }
+
+    //Querydsl where 파라미터 (컨텐츠 + 카운트 쿼리)
+    @ParameterizedTest(name = "shape {0}")
+    @MethodSource("shapes")
+    public void querydslSearchUsesIndex(int shape) throws Exception{
+        MemberSearchCondition condition = condition(shape);
+
+        assertNoTableScan(captureSelects(() -> memberRepository.searchPageComplex(condition, PageRequest.of(0, 1))));
+    }
+
+    //타입어헤드 - 앞부분 검색 / 대소문자 무시 검색도 범위 스캔이어야 함
+    @ParameterizedTest(name = "ignoreCase {0}")
+    @ValueSource(booleans = {false, true})
+    public void usernamePrefixUsesIndex(boolean ignoreCase) throws Exception{
+        MemberSearchCondition prefix = new MemberSearchCondition();
+        prefix.setUsernamePrefix("Member1");
+        prefix.setIgnoreCase(ignoreCase);
+        MemberSearchCondition exact = new MemberSearchCondition("MEMBER1", null, null, null);
+        exact.setIgnoreCase(ignoreCase);
+
+        assertNoTableScan(captureSelects(() -> memberRepository.search(prefix)));
+        assertNoTableScan(captureSelects(() -> memberRepository.search(exact)));
+    }
+
+    @ParameterizedTest(name = "ignoreCase {0}")
+    @ValueSource(booleans = {false, true})
+    public void usernamePrefixResult(boolean ignoreCase) throws Exception{
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix(ignoreCase ? "MEMBER1" : "member1");
+        condition.setIgnoreCase(ignoreCase);
+
+        assertThat(memberRepository.search(condition))
+                .extracting("username")
+                .containsExactlyInAnyOrder("member1", "member10", "member11", "member12", "member13",
+                        "member14", "member15", "member16", "member17", "member18", "member19");
+    }
+
+    private static MemberSearchCondition condition(int shape) {
+        return new MemberSearchCondition(
+                (shape & 1) != 0 ? "member1" : null,
+                (shape & 2) != 0 ? "teamA" : null,
+                (shape & 4) != 0 ? 10 : null,
+                (shape & 8) != 0 ? 20 : null);
+    }
+
+    private static List<String> captureSelects(Runnable search) {
+        SqlStatementStats.start(true);
+        SqlStatementStats stats;
+        try {
+            search.run();
+        } finally {
+            stats = SqlStatementStats.stop();
+        }
+        return stats.getStatements().stream()
+                .filter(sql -> sql.toLowerCase().contains("select"))
+                .collect(Collectors.toList());
+    }
+
+    private void assertNoTableScan(List<String> selects) {
+        assertThat(selects).isNotEmpty();
+        for (String sql : selects) {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+            assertThat(plan).as("%s%n%s", sql, plan).doesNotContainIgnoringCase("tableScan");
+        }
+    }
+}
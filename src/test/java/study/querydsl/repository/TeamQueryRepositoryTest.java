@@ -0,0 +1,87 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.dto.TeamMemberDto;
+import study.querydsl.dto.TeamMembersDto;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.monitoring.SqlStatementAssertions.assertStatementCount;
+
+@SpringBootTest
+@Transactional
+class TeamQueryRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamQueryRepository teamQueryRepository;
+
+    @BeforeEach
+    public void before() {
+        for (int i = 0; i < 5; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            for (int j = 0; j < 3; j++) {
+                em.persist(new Member("member" + i + "_" + j, 10 + j, team));
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void teamsWithMembers() throws Exception{
+        //팀 3개 페이지 -> 팀 조회 + 카운트 + 회원 IN 조회 = 3번 (팀마다 회원을 조회하지 않음)
+        Page<TeamMembersDto> result = assertStatementCount(3,
+                () -> teamQueryRepository.findTeamsWithMembers(PageRequest.of(0, 3)));
+
+        assertThat(result.getTotalElements()).isEqualTo(5);
+        assertThat(result.getContent()).extracting("teamName").containsExactly("team0", "team1", "team2");
+        assertThat(result.getContent().get(0).getMembers())
+                .extracting(TeamMemberDto::getUsername)
+                .containsExactly("member0_0", "member0_1", "member0_2");
+    }
+
+    @Test
+    public void membersCappedPerTeam() throws Exception{
+        //팀마다 2명까지 - 쿼리 수는 그대로 3번
+        Page<TeamMembersDto> result = assertStatementCount(3,
+                () -> teamQueryRepository.findTeamsWithMembers(PageRequest.of(0, 3), 2));
+
+        assertThat(result.getContent()).allSatisfy(team -> {
+            assertThat(team.getMembers()).hasSize(2);
+            assertThat(team.isMoreMembers()).isTrue();
+        });
+        assertThat(result.getContent().get(1).getMembers())
+                .extracting(TeamMemberDto::getUsername)
+                .containsExactly("member1_0", "member1_1");
+
+        //딱 맞으면 더 없음
+        Page<TeamMembersDto> exact = teamQueryRepository.findTeamsWithMembers(PageRequest.of(0, 3), 3);
+        assertThat(exact.getContent()).allSatisfy(team -> {
+            assertThat(team.getMembers()).hasSize(3);
+            assertThat(team.isMoreMembers()).isFalse();
+        });
+    }
+
+    @Test
+    public void lastPageSkipsCount() throws Exception{
+        //마지막 페이지는 카운트 쿼리가 필요없음 -> 팀 조회 + 회원 IN 조회 = 2번
+        Page<TeamMembersDto> result = assertStatementCount(2,
+                () -> teamQueryRepository.findTeamsWithMembers(PageRequest.of(1, 3)));
+
+        assertThat(result.getContent()).extracting("teamName").containsExactly("team3", "team4");
+        assertThat(result.getContent()).allSatisfy(team -> assertThat(team.getMembers()).hasSize(3));
+    }
+}
@@ -0,0 +1,101 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.repository.support.TeamStatsEventListener;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Transactional
+class TeamStatsRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    TeamStatsEventListener teamStatsEventListener;
+
+    Team teamA;
+    Team teamB;
+    Member member1;
+    Member member4;
+
+    @BeforeEach
+    public void before() {
+        teamA = new Team("teamA");
+        teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        member4 = new Member("member4", 40, teamB);
+        em.persist(member4);
+
+        //테스트는 롤백되므로 커밋 직전 반영을 직접 부른다.
+        teamStatsEventListener.applyPendingChanges();
+    }
+
+    @Test
+    public void insert() throws Exception{
+        List<TeamStatsDto> result = teamStatsRepository.findAll();
+
+        assertThat(result)
+                .extracting("teamName", "memberCount", "ageSum", "ageAvg", "minAge", "maxAge")
+                .containsExactly(
+                        tuple("teamA", 2L, 30L, 15.0, 10, 20),
+                        tuple("teamB", 2L, 70L, 35.0, 30, 40));
+    }
+
+    @Test
+    public void updateAndDelete() throws Exception{
+        member1.setAge(50);             // teamA 최소값이 빠짐 -> teamA 재집계
+        member4.setTeam(teamA);         // teamB 최대값이 빠지고 teamA 에 추가
+        em.remove(em.find(Member.class, findId("member2")));
+        em.persist(new Member("member5", 5, teamB));
+
+        teamStatsEventListener.applyPendingChanges();
+
+        assertThat(teamStatsRepository.findAll())
+                .extracting("teamName", "memberCount", "ageSum", "minAge", "maxAge")
+                .containsExactly(
+                        tuple("teamA", 2L, 90L, 40, 50),
+                        tuple("teamB", 2L, 35L, 5, 30));
+    }
+
+    @Test
+    public void rebuild() throws Exception{
+        em.createQuery("delete from TeamStats").executeUpdate();
+        em.clear();
+
+        teamStatsRepository.rebuild();
+
+        assertThat(teamStatsRepository.findAll())
+                .extracting("teamName", "memberCount", "ageSum", "minAge", "maxAge")
+                .containsExactly(
+                        tuple("teamA", 2L, 30L, 10, 20),
+                        tuple("teamB", 2L, 70L, 30, 40));
+    }
+
+    private Long findId(String username) {
+        return em.createQuery("select m.id from Member m where m.username = :username", Long.class)
+                .setParameter("username", username)
+                .getSingleResult();
+    }
+}
@@ -0,0 +1,218 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberTestRepositroy;
+import study.querydsl.repository.TeamStatsRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//스냅샷은 커밋된 데이터만 반영하므로 @Transactional 없이 실행하고 만든 데이터는 직접 지운다.
+//전체 member 테이블을 읽으므로 다른 테스트 데이터와 섞이지 않게 메모리 H2 를 쓴다.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:columnar;DB_CLOSE_DELAY=-1",
+        "member.columnar.enabled=true",
+        "member.columnar.compact-threshold=5"})
+class MemberColumnarEngineTest {
+
+    @Autowired
+    MemberColumnarEngine engine;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberTestRepositroy memberTestRepositroy;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    TransactionTemplate tx;
+    TransactionTemplate readOnlyTx;
+    MemberSearchCondition condition = new MemberSearchCondition(null, "columnarTeam", null, null);
+
+    @BeforeEach
+    public void before() throws Exception {
+        tx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        awaitReady();
+        tx.executeWithoutResult(status -> {
+            Team team = new Team("columnarTeam");
+            em.persist(team);
+            em.persist(new Member("columnar1", 10, team));
+            em.persist(new Member("columnar2", 20, team));
+        });
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m").executeUpdate();
+            em.createQuery("delete from Team t").executeUpdate();
+        });
+        teamStatsRepository.rebuild();
+        engine.rebuild(); //벌크 delete 는 이벤트가 없으므로 다시 읽는다
+        awaitReady();
+    }
+
+    @Test
+    public void databaseWhileWarming() throws Exception {
+        //로딩 스레드는 스냅샷을 걸기전에 engine 락을 잡으므로 락을 쥐고있는 동안은 워밍중
+        synchronized (engine) {
+            engine.rebuild();
+
+            assertThat(engine.isReady()).isFalse();
+            assertThat(engine.storeFor(condition)).isNull();
+            assertThat(usernames(memberJpaRepository.searchByWhere(condition))).containsExactly("columnar1", "columnar2");
+        }
+
+        awaitReady();
+        assertThat(usernames(engine.storeFor(condition).search(condition))).containsExactly("columnar1", "columnar2");
+    }
+
+    @Test
+    public void appliesChangesAfterCommit() {
+        tx.executeWithoutResult(status -> {
+            Team team = em.createQuery("select t from Team t where t.name = 'columnarTeam'", Team.class).getSingleResult();
+            em.persist(new Member("columnar3", 30, team));
+            em.flush(); //insert 이벤트 발생
+
+            assertThat(usernames(snapshotFromOtherThread())).containsExactly("columnar1", "columnar2");
+        });
+
+        assertThat(usernames(engine.storeFor(condition).search(condition))).containsExactly("columnar1", "columnar2", "columnar3");
+    }
+
+    @Test
+    public void commitsAreAppliedTogetherOnNextSearch() {
+        MemberColumnarStore before = engine.storeFor(condition);
+        for (String username : new String[]{"columnar3", "columnar4"}) {
+            tx.executeWithoutResult(status -> {
+                Team team = em.createQuery("select t from Team t where t.name = 'columnarTeam'", Team.class).getSingleResult();
+                em.persist(new Member(username, 30, team));
+            });
+        }
+
+        MemberColumnarStore after = engine.storeFor(condition);
+        assertThat(usernames(after.search(condition))).containsExactly("columnar1", "columnar2", "columnar3", "columnar4");
+        assertThat(usernames(before.search(condition))).containsExactly("columnar1", "columnar2"); //이전 스냅샷은 그대로
+        assertThat(engine.storeFor(condition)).isSameAs(after); //새 변경이 없으면 사본을 만들지 않는다
+    }
+
+    @Test
+    public void ignoresRolledBackWrites() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("select m from Member m where m.username = 'columnar1'", Member.class)
+                    .getSingleResult()
+                    .setAge(99);
+            em.flush(); //update 이벤트 발생
+            status.setRollbackOnly();
+        });
+
+        assertThat(engine.storeFor(condition).search(condition))
+                .extracting(MemberTeamDto::getAge)
+                .containsExactly(10, 20);
+    }
+
+    @Test
+    public void readWriteTransactionBypassesSnapshot() {
+        readOnlyTx.executeWithoutResult(status -> assertThat(engine.storeFor(condition)).isNotNull());
+
+        tx.executeWithoutResult(status -> {
+            assertThat(engine.storeFor(condition)).isNull();
+
+            Team team = em.createQuery("select t from Team t where t.name = 'columnarTeam'", Team.class).getSingleResult();
+            em.persist(new Member("columnar3", 30, team));
+            //내 커밋 안된 변경이 보여야 한다 (DB 로 조회)
+            assertThat(usernames(memberJpaRepository.searchByWhere(condition))).containsExactly("columnar1", "columnar2", "columnar3");
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    public void rebuildsOnBulkWrite() throws Exception {
+        synchronized (engine) { //다시 읽기가 끝나지 않게 잡아둔다
+            long affected = memberTestRepositroy.bulkAddAgeByTeamName("columnarTeam", 100, 10, progress -> { });
+
+            assertThat(affected).isEqualTo(2);
+            assertThat(engine.isReady()).isFalse();
+        }
+
+        awaitReady();
+        assertThat(engine.storeFor(condition).search(condition))
+                .extracting(MemberTeamDto::getAge)
+                .containsExactly(110, 120);
+    }
+
+    @Test
+    public void compactsOffTheSearchThread() throws Exception {
+        insertMembers("columnar3", "columnar4", "columnar5", "columnar6"); //delta 6 > 5
+
+        synchronized (engine) { //압축 스레드가 바꿔 끼우지 못하게 잡아둔다
+            MemberColumnarStore overlay = engine.storeFor(condition);
+            assertThat(overlay.deltaSize()).isEqualTo(6); //압축을 기다리지 않고 스냅샷 + delta 로 검색
+            assertThat(usernames(overlay.search(condition)))
+                    .containsExactly("columnar1", "columnar2", "columnar3", "columnar4", "columnar5", "columnar6");
+
+            insertMembers("columnar7"); //압축할 스냅샷을 뜬 뒤의 변경
+            assertThat(engine.storeFor(condition).deltaSize()).isEqualTo(7);
+        }
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (engine.storeFor(condition).deltaSize() != 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        MemberColumnarStore compacted = engine.storeFor(condition);
+        assertThat(compacted.deltaSize()).isEqualTo(1); //columnar7 만 다시 적용됨
+        assertThat(usernames(compacted.search(condition)))
+                .containsExactly("columnar1", "columnar2", "columnar3", "columnar4", "columnar5", "columnar6", "columnar7");
+    }
+
+    private void insertMembers(String... usernames) {
+        tx.executeWithoutResult(status -> {
+            Team team = em.createQuery("select t from Team t where t.name = 'columnarTeam'", Team.class).getSingleResult();
+            for (String username : usernames) {
+                em.persist(new Member(username, 30, team));
+            }
+        });
+    }
+
+    //트랜잭션이 없는 다른 스레드에서 본 스냅샷 - 커밋 전 변경은 없어야 한다
+    private List<MemberTeamDto> snapshotFromOtherThread() {
+        return CompletableFuture.supplyAsync(() -> engine.storeFor(condition).search(condition)).join();
+    }
+
+    private void awaitReady() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!engine.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(engine.isReady()).isTrue();
+    }
+
+    private static List<String> usernames(List<MemberTeamDto> result) {
+        return result.stream().map(MemberTeamDto::getUsername).collect(Collectors.toList());
+    }
+}
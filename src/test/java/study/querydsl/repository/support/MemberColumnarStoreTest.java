@@ -0,0 +1,103 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberColumnarStoreTest {
+
+    MemberColumnarStore store;
+
+    @BeforeEach
+    public void before() {
+        Map<Long, String> teams = new HashMap<>();
+        teams.put(1L, "teamA");
+        teams.put(2L, "teamB");
+        store = MemberColumnarStore.of(Arrays.asList(
+                new MemberColumnarStore.Row(4L, "member4", 40, 2L),
+                new MemberColumnarStore.Row(1L, "member1", 10, 1L),
+                new MemberColumnarStore.Row(3L, "member3", 30, 2L),
+                new MemberColumnarStore.Row(2L, "member2", 20, 1L),
+                new MemberColumnarStore.Row(5L, "other", 20, null)), teams);
+    }
+
+    @Test
+    public void searchByCondition() {
+        MemberSearchCondition condition = new MemberSearchCondition(null, "teamB", 35, 40);
+
+        assertThat(store.search(condition))
+                .containsExactly(new MemberTeamDto(4L, "member4", 40, 2L, "teamB"));
+    }
+
+    @Test
+    public void emptyConditionReturnsAllInIdOrder() {
+        assertThat(store.search(new MemberSearchCondition()))
+                .extracting(MemberTeamDto::getMemberId)
+                .containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(store.search(new MemberSearchCondition()).get(4).getTeamName()).isNull(); //left join
+    }
+
+    @Test
+    public void usernamePrefixAndAgeRange() {
+        MemberSearchCondition condition = new MemberSearchCondition(null, null, 20, 30);
+        condition.setUsernamePrefix("member");
+
+        assertThat(store.search(condition)).extracting(MemberTeamDto::getMemberId).containsExactly(2L, 3L);
+        assertThat(store.count(condition)).isEqualTo(2);
+    }
+
+    @Test
+    public void unknownValuesMatchNothing() {
+        assertThat(store.search(new MemberSearchCondition("nobody", null, null, null))).isEmpty();
+        assertThat(store.search(new MemberSearchCondition(null, "teamZ", null, null))).isEmpty();
+    }
+
+    @Test
+    public void fetchPage() {
+        assertThat(store.fetch(new MemberSearchCondition(), 1, 2))
+                .extracting(MemberTeamDto::getMemberId)
+                .containsExactly(2L, 3L);
+    }
+
+    @Test
+    public void committedChangesAreMergedInIdOrder() {
+        MemberColumnarStore.Changes changes = new MemberColumnarStore.Changes();
+        changes.putTeam(3L, "teamC");
+        changes.putMember(new MemberColumnarStore.Row(2L, "member2", 21, 3L)); //팀 이동
+        changes.deleteMember(3L);
+        changes.putMember(new MemberColumnarStore.Row(6L, "member6", 60, 1L));
+
+        MemberColumnarStore changed = store.with(changes);
+
+        assertThat(changed.search(new MemberSearchCondition()))
+                .extracting(MemberTeamDto::getMemberId)
+                .containsExactly(1L, 2L, 4L, 5L, 6L);
+        assertThat(changed.search(new MemberSearchCondition(null, "teamC", null, null)))
+                .containsExactly(new MemberTeamDto(2L, "member2", 21, 3L, "teamC"));
+        assertThat(changed.count(new MemberSearchCondition(null, "teamA", null, null))).isEqualTo(2);
+        assertThat(store.size()).isEqualTo(5); //원본은 그대로
+    }
+
+    @Test
+    public void compactKeepsSameResult() {
+        MemberColumnarStore.Changes changes = new MemberColumnarStore.Changes();
+        changes.putMember(new MemberColumnarStore.Row(6L, "member6", 60, 1L));
+        changes.deleteMember(1L);
+
+        MemberColumnarStore overlay = store.with(changes);
+        MemberColumnarStore compacted = overlay.compact();
+
+        MemberSearchCondition condition = new MemberSearchCondition(null, "teamA", null, null);
+        assertThat(overlay.deltaSize()).isEqualTo(2);
+        assertThat(compacted.deltaSize()).isZero();
+        assertThat(compacted.search(condition)).isEqualTo(overlay.search(condition));
+        assertThat(compacted.size()).isEqualTo(overlay.size());
+    }
+}
@@ -0,0 +1,87 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+//메모리 H2 에 MEMBER, TEAM 테이블만 만들어서 FullTextLucene 인덱스 생성/검색/재생성 확인
+class MemberFullTextIndexTest {
+
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(
+            new DriverManagerDataSource("jdbc:h2:mem:fulltext;DB_CLOSE_DELAY=-1", "sa", ""));
+    MemberFullTextIndex index = new MemberFullTextIndex(jdbcTemplate, true);
+
+    @BeforeEach
+    public void before() {
+        jdbcTemplate.execute("create table team (team_id bigint primary key, name varchar(255))");
+        jdbcTemplate.execute("create table member (member_id bigint primary key, username varchar(255), team_id bigint)");
+        jdbcTemplate.update("insert into team values (1, 'red dragons'), (2, 'blue whales')");
+        jdbcTemplate.update("insert into member values (1, 'kim minsu', 1), (2, 'lee dragon', 2), (3, 'park', 2)");
+        index.init();
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    public void searchMemberAndTeam() {
+        assertThat(index.search("minsu", 10))
+                .extracting(MemberFullTextIndex.Hit::getTable, MemberFullTextIndex.Hit::getId)
+                .containsExactly(tuple("MEMBER", 1L));
+
+        assertThat(index.search("whales", 10))
+                .extracting(MemberFullTextIndex.Hit::getTable, MemberFullTextIndex.Hit::getId)
+                .containsExactly(tuple("TEAM", 2L));
+    }
+
+    @Test
+    public void searchOneColumn() {
+        //회원명/팀명 한도를 따로 두려고 컬럼별로 찾는다
+        assertThat(index.search("dragon dragons", "USERNAME", 10))
+                .extracting(MemberFullTextIndex.Hit::getTable, MemberFullTextIndex.Hit::getId)
+                .containsExactly(tuple("MEMBER", 2L));
+        assertThat(index.search("dragon dragons", "NAME", 10))
+                .extracting(MemberFullTextIndex.Hit::getTable, MemberFullTextIndex.Hit::getId)
+                .containsExactly(tuple("TEAM", 1L));
+    }
+
+    @Test
+    public void triggerUpdatesIndex() {
+        jdbcTemplate.update("insert into member values (4, 'choi minsu', 1)");
+
+        List<MemberFullTextIndex.Hit> hits = index.search("minsu", 10);
+
+        assertThat(hits).extracting(MemberFullTextIndex.Hit::getId).containsExactlyInAnyOrder(1L, 4L);
+    }
+
+    @Test
+    public void queryTextIsEscaped() {
+        //루씬 쿼리 문법 문자가 들어와도 파싱 에러 없이 단어로 검색
+        assertThat(index.search("minsu)", 10)).hasSize(1);
+        assertThat(MemberFullTextIndex.escape("a+b:c")).isEqualTo("a\\+b\\:c");
+    }
+
+    @Test
+    public void operatorWordsAreSearchedAsText() {
+        //AND, OR, NOT 만 있어도 ParseException 없이 검색
+        assertThat(index.search("AND", 10)).isEmpty();
+        assertThat(index.search("NOT minsu", 10)).extracting(MemberFullTextIndex.Hit::getId).containsExactly(1L);
+        assertThat(MemberFullTextIndex.escape("kim OR lee ANDROID")).isEqualTo("kim or lee ANDROID");
+    }
+
+    @Test
+    public void reindex() {
+        index.reindex();
+
+        assertThat(index.search("park", 10)).extracting(MemberFullTextIndex.Hit::getId).containsExactly(3L);
+    }
+}
@@ -0,0 +1,88 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.Entitiy.Member;
+import study.querydsl.Entitiy.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.Entitiy.QMember.member;
+import static study.querydsl.Entitiy.QTeam.team;
+
+/**
+ * 손으로 쓴 JPQL 템플릿 16가지가 MemberSearchPredicates 로 만든 Querydsl 쿼리와 같은 결과인지
+ * 조건마다 걸러지는 행이 있도록 데이터를 만든다. (팀 없는 회원, 같은 이름의 다른 팀 회원, 경계 나이)
+ */
+@SpringBootTest
+@Transactional
+class MemberSearchQueryTemplatesTest {
+
+    @Autowired
+    EntityManager em;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("templateTeamA");
+        Team teamB = new Team("templateTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 24; i++) {
+            Team team = i % 3 == 0 ? teamA : i % 3 == 1 ? teamB : null;
+            em.persist(new Member(i % 4 == 0 ? "templateMember" : "templateMember" + i, 18 + i % 10, team));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    static IntStream shapes() {
+        return IntStream.range(0, 16);
+    }
+
+    @ParameterizedTest(name = "shape {0}")
+    @MethodSource("shapes")
+    public void sameResultAsPredicates(int shape) throws Exception{
+        MemberSearchCondition condition = new MemberSearchCondition(
+                (shape & 1) != 0 ? "templateMember" : null,
+                (shape & 2) != 0 ? "templateTeamA" : null,
+                (shape & 4) != 0 ? 20 : null,
+                (shape & 8) != 0 ? 26 : null);
+        assertThat(MemberSearchQueryTemplates.shape(condition)).isEqualTo(shape);
+
+        List<MemberTeamDto> expected = new JPAQueryFactory(em)
+                .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.username.startsWith("templateMember"),
+                        MemberSearchPredicates.username(condition),
+                        MemberSearchPredicates.teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .fetch();
+        List<MemberTeamDto> actual = MemberSearchQueryTemplates.search(em, condition);
+        actual.removeIf(dto -> !dto.getUsername().startsWith("templateMember")); //다른 테스트/초기 데이터 제외
+
+        assertThat(expected).isNotEmpty();
+        assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    private static BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private static BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+}
@@ -0,0 +1,216 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageCountExecutorTest {
+
+    static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    PageCountExecutor pageCountExecutor;
+
+    @BeforeEach
+    public void before() {
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+        pageCountExecutor = new PageCountExecutor(true, TIMEOUT, executor, new NoOpTransactionManager());
+    }
+
+    @AfterEach
+    public void after() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void countRunsOnOtherThread() throws Exception{
+        AtomicReference<String> countThread = new AtomicReference<>();
+
+        Page<String> page = pageCountExecutor.getPage(PageRequest.of(0, 2),
+                () -> Arrays.asList("a", "b"),
+                () -> {
+                    countThread.set(Thread.currentThread().getName());
+                    return 10;
+                });
+
+        assertThat(page.getContent()).containsExactly("a", "b");
+        assertThat(page.getTotalElements()).isEqualTo(10);
+        assertThat(countThread.get()).isNotEqualTo(Thread.currentThread().getName());
+    }
+
+    @Test
+    public void countCancelledWhenNotNeeded() throws Exception{
+        CountDownLatch countStarted = new CountDownLatch(1);
+        CountDownLatch countInterrupted = new CountDownLatch(1);
+
+        //첫페이지가 덜 찼으면 전체 건수는 컨텐츠 크기로 충분하다 -> 카운트 취소
+        Page<String> page = pageCountExecutor.getPage(PageRequest.of(0, 10),
+                () -> {
+                    await(countStarted);
+                    return Arrays.asList("a", "b");
+                },
+                () -> {
+                    countStarted.countDown();
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        countInterrupted.countDown();
+                    }
+                    return 100;
+                });
+
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(countInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void sequentialWhenDisabled() throws Exception{
+        PageCountExecutor disabled = new PageCountExecutor(false, TIMEOUT, executor, new NoOpTransactionManager());
+        AtomicReference<String> countThread = new AtomicReference<>();
+
+        List<String> content = Arrays.asList("a", "b");
+        Page<String> page = disabled.getPage(PageRequest.of(0, 2), () -> content, () -> {
+            countThread.set(Thread.currentThread().getName());
+            return 3;
+        });
+
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(countThread.get()).isEqualTo(Thread.currentThread().getName());
+    }
+
+    @Test
+    public void countOnCallerThreadAfterTimeout() throws Exception{
+        PageCountExecutor shortTimeout = new PageCountExecutor(true, Duration.ofMillis(100), executor, new NoOpTransactionManager());
+        Thread caller = Thread.currentThread();
+        CountDownLatch countInterrupted = new CountDownLatch(1);
+
+        Page<String> page = shortTimeout.getPage(PageRequest.of(0, 2), () -> Arrays.asList("a", "b"), () -> {
+            if (Thread.currentThread() == caller) {
+                return 7;
+            }
+            try {
+                Thread.sleep(10_000); //커넥션을 못얻고 기다리는 상황
+            } catch (InterruptedException e) {
+                countInterrupted.countDown();
+            }
+            return 100;
+        });
+
+        assertThat(page.getTotalElements()).isEqualTo(7);
+        assertThat(countInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    //실제 커넥션 - 읽기전용 호출이면 카운트는 다른 스레드의 새 읽기전용 트랜잭션(다른 커넥션)에서 커밋된 행을 센다
+    @Test
+    public void countInNewReadOnlyTransaction() throws Exception{
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:pagecount-readonly;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = itemTable(dataSource, 5);
+        try {
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            PageCountExecutor jdbcCount = new PageCountExecutor(true, TIMEOUT, executor, transactionManager);
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            Thread caller = Thread.currentThread();
+            AtomicReference<Boolean> countInReadOnlyTx = new AtomicReference<>();
+            AtomicReference<Thread> countThread = new AtomicReference<>();
+
+            Page<Integer> page = readOnly.execute(status -> jdbcCount.getPage(PageRequest.of(0, 2),
+                    () -> jdbcTemplate.queryForList("select id from item order by id limit 2", Integer.class),
+                    () -> {
+                        countThread.set(Thread.currentThread());
+                        countInReadOnlyTx.set(TransactionSynchronizationManager.isActualTransactionActive()
+                                && TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+                        return jdbcTemplate.queryForObject("select count(*) from item", Long.class);
+                    }));
+
+            assertThat(page.getContent()).containsExactly(1, 2);
+            assertThat(page.getTotalElements()).isEqualTo(5);
+            assertThat(countThread.get()).isNotSameAs(caller);
+            assertThat(countInReadOnlyTx.get()).isTrue();
+        } finally {
+            jdbcTemplate.execute("shutdown");
+        }
+    }
+
+    //실제 커넥션 - 쓰기 트랜잭션 안에서는 커밋 안된 내 변경분까지 세도록 호출한 스레드(같은 커넥션)에서 센다
+    @Test
+    public void countSeesUncommittedRowsInWriteTransaction() throws Exception{
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:pagecount-write;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = itemTable(dataSource, 5);
+        try {
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            PageCountExecutor jdbcCount = new PageCountExecutor(true, TIMEOUT, executor, transactionManager);
+            TransactionTemplate write = new TransactionTemplate(transactionManager);
+
+            Page<Integer> page = write.execute(status -> {
+                jdbcTemplate.update("insert into item values (6), (7), (8)");
+                Page<Integer> result = jdbcCount.getPage(PageRequest.of(0, 2),
+                        () -> jdbcTemplate.queryForList("select id from item order by id limit 2", Integer.class),
+                        () -> jdbcTemplate.queryForObject("select count(*) from item", Long.class));
+                status.setRollbackOnly();
+                return result;
+            });
+
+            assertThat(page.getTotalElements()).isEqualTo(8);
+        } finally {
+            jdbcTemplate.execute("shutdown");
+        }
+    }
+
+    private static JdbcTemplate itemTable(DriverManagerDataSource dataSource, int rows) {
+        dataSource.setDriverClassName("org.h2.Driver");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table item (id int primary key)");
+        for (int i = 1; i <= rows; i++) {
+            jdbcTemplate.update("insert into item values (?)", i);
+        }
+        return jdbcTemplate;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class NoOpTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
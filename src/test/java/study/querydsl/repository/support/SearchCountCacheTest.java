@@ -0,0 +1,42 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchCountCacheTest {
+
+    SearchCountCache cache = new SearchCountCache(Duration.ofMinutes(1), 100);
+
+    @Test
+    public void countOncePerCondition() throws Exception{
+        AtomicInteger queries = new AtomicInteger();
+
+        MemberSearchCondition page1 = new MemberSearchCondition(null, "teamA", 10, null);
+        MemberSearchCondition page2 = new MemberSearchCondition("", "teamA", 10, null); // 빈 문자열은 조건이 없는것과 같음
+
+        long count1 = cache.getCount(page1.normalized(), () -> queries.incrementAndGet() * 10L);
+        long count2 = cache.getCount(page2.normalized(), () -> queries.incrementAndGet() * 10L);
+
+        assertThat(count1).isEqualTo(10);
+        assertThat(count2).isEqualTo(10);
+        assertThat(queries.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void evictAll() throws Exception{
+        AtomicInteger queries = new AtomicInteger();
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        cache.getCount(condition.normalized(), queries::incrementAndGet);
+        cache.evictAll();
+        long count = cache.getCount(condition.normalized(), queries::incrementAndGet);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(queries.get()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,108 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResultCacheTest {
+
+    SearchResultCache cache = new SearchResultCache(Duration.ofMinutes(1), 100);
+
+    @Test
+    public void searchOncePerCondition() throws Exception{
+        AtomicInteger queries = new AtomicInteger();
+        MemberSearchCondition condition = new MemberSearchCondition(null, "teamA", 10, null);
+
+        List<MemberTeamDto> result1 = cache.getList(condition.normalized(), () -> query(queries));
+        List<MemberTeamDto> result2 = cache.getList(new MemberSearchCondition(" ", "teamA", 10, null).normalized(), () -> query(queries));
+
+        assertThat(result2).isEqualTo(result1);
+        assertThat(queries.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void callersGetTheirOwnCopies() throws Exception{
+        AtomicInteger queries = new AtomicInteger();
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        //캐시에 넣은 요청이 결과를 고쳐도 다음 요청은 원래 값을 받는다
+        List<MemberTeamDto> result1 = cache.getList(condition.normalized(), () -> query(queries));
+        result1.get(0).setUsername("changed");
+        result1.add(new MemberTeamDto(2L, "member2", 20, 1L, "teamA"));
+
+        List<MemberTeamDto> result2 = cache.getList(condition.normalized(), () -> query(queries));
+        assertThat(result2).extracting(MemberTeamDto::getUsername).containsExactly("member1");
+
+        Page<MemberTeamDto> page1 = cache.getPage(condition.normalized(), PageRequest.of(0, 3),
+                () -> new PageImpl<>(query(queries), PageRequest.of(0, 3), 10));
+        page1.getContent().get(0).setAge(99);
+
+        Page<MemberTeamDto> page2 = cache.getPage(condition.normalized(), PageRequest.of(0, 3), () -> page(queries));
+        assertThat(page2.getContent()).extracting(MemberTeamDto::getAge).containsExactly(10);
+        assertThat(page2.getTotalElements()).isEqualTo(10);
+        assertThat(queries.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void pageKeyIncludesPageable() throws Exception{
+        AtomicInteger queries = new AtomicInteger();
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        cache.getPage(condition.normalized(), PageRequest.of(0, 3), () -> page(queries));
+        cache.getPage(condition.normalized(), PageRequest.of(0, 3), () -> page(queries));
+        cache.getPage(condition.normalized(), PageRequest.of(1, 3), () -> page(queries));
+
+        assertThat(queries.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void evictAll() throws Exception{
+        AtomicInteger queries = new AtomicInteger();
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        cache.getList(condition.normalized(), () -> query(queries));
+        cache.evictAll();
+        cache.getList(condition.normalized(), () -> query(queries));
+
+        assertThat(queries.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void staleResultNotCached() throws Exception{
+        AtomicInteger queries = new AtomicInteger();
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        //조회중에 다른 트랜잭션의 쓰기가 커밋되면 그 결과는 캐시에 남기지 않는다.
+        cache.getList(condition.normalized(), () -> {
+            List<MemberTeamDto> result = query(queries);
+            cache.evictAll();
+            return result;
+        });
+        cache.getList(condition.normalized(), () -> query(queries));
+
+        assertThat(queries.get()).isEqualTo(2);
+    }
+
+    private List<MemberTeamDto> query(AtomicInteger queries) {
+        queries.incrementAndGet();
+        List<MemberTeamDto> result = new ArrayList<>();
+        result.add(new MemberTeamDto(1L, "member1", 10, 1L, "teamA"));
+        return result;
+    }
+
+    private Page<MemberTeamDto> page(AtomicInteger queries) {
+        queries.incrementAndGet();
+        return new PageImpl<>(Collections.emptyList());
+    }
+}